@@ -1,47 +1,60 @@
 package Application.Bank;
 
 import java.time.LocalDate;
-import java.util.HashMap;
 
-import Utils.Randomiser.GenerateReferenceNumber;
-
-import java.util.Map;
+import Utils.Collections.LongHashMap;
+import Utils.Randomiser.ReferenceCodec;
+import Utils.Randomiser.UniqueReferenceAllocator;
 
 // Bank manages individual BankAccounts, other banks franchises can extend bank class
 public class Bank {
 
-    private final Map<String, BankAccount> accounts; // Keyed by some unique identifier, e.g. an account number.
+    // Account numbers are always 'U' + 18 digits + quarter label, so they pack into a single long.
+    public static final ReferenceCodec ACCOUNT_NUMBER_CODEC = ReferenceCodec.forLetter('U', 18);
+
+    private final LongHashMap<BankAccount> accounts; // Keyed by the packed account number, see ACCOUNT_NUMBER_CODEC.
+    // Shared by every Bank so that two franchises can never hand out the same account number.
+    private static final UniqueReferenceAllocator ACCOUNT_NUMBERS = new UniqueReferenceAllocator(18);
 
     public Bank() {
-        this.accounts = new HashMap<>();
+        this.accounts = new LongHashMap<>();
     }
 
     public String createAccount(String ownerName) {
-        String accountNumber = new GenerateReferenceNumber(LocalDate.now().getMonth(), 18).generateReferenceNumber('U');
-        BankAccount account = new BankAccount(accountNumber, ownerName);
-        accounts.put(accountNumber, account);
-        return this.accounts.get(accountNumber).ACCOUNT_NUMBER;
+        return this.accounts.get(createAccountKey(ownerName)).ACCOUNT_NUMBER;
+    }
+
+    // Same as createAccount, but returns the packed account number for callers that keep it as a long.
+    public long createAccountKey(String ownerName) {
+        char quarterLabel = ReferenceCodec.quarterLabel(LocalDate.now().getMonth());
+        long accountKey = ACCOUNT_NUMBER_CODEC.encode('U', ACCOUNT_NUMBERS.nextSeed('U', quarterLabel), quarterLabel);
+        BankAccount account = new BankAccount(ACCOUNT_NUMBER_CODEC.toString(accountKey), ownerName);
+        accounts.put(accountKey, account);
+        return accountKey;
     }
 
     public BankAccount getAccount(String accountNumber) {
-        return accounts.get(accountNumber);
+        long accountKey = ACCOUNT_NUMBER_CODEC.tryEncode(accountNumber);
+        return accountKey == ReferenceCodec.INVALID ? null : getAccount(accountKey);
+    }
+
+    public BankAccount getAccount(long accountKey) {
+        return accounts.get(accountKey);
     }
 
     public boolean removeAccount(String accountNumber) {
-        if (accounts.containsKey(accountNumber)) {
-            accounts.remove(accountNumber);
-            return true;
-        }
-        else return false;
+        long accountKey = ACCOUNT_NUMBER_CODEC.tryEncode(accountNumber);
+        return accountKey != ReferenceCodec.INVALID && removeAccount(accountKey);
+    }
+
+    public boolean removeAccount(long accountKey) {
+        return accounts.remove(accountKey) != null;
     }
 
     public void printAllAccountsSummary() {
-        for (Map.Entry<String, BankAccount> entry : accounts.entrySet()) {
-            String id = entry.getKey();
-            BankAccount acc = entry.getValue();
-            System.out.println("Account ID: " + id
+        accounts.forEach((id, acc) ->
+            System.out.println("Account ID: " + acc.ACCOUNT_NUMBER
                     + " | Owner: " + acc.ACCOUNT_HOLDER
-                    + " | Balance: " + acc.getFormattedBalance());
-        }
+                    + " | Balance: " + acc.getFormattedBalance()));
     }
 }
@@ -1,8 +1,13 @@
 package Application.Bank;
 
-import Utils.Converter.MoneyConverter;
-import Utils.Randomiser.GenerateReferenceNumber;
+import Utils.Collections.LongHashMap;
+import Utils.Converter.Money;
+import Utils.Converter.MoneyFormatter;
+import Utils.Randomiser.ReferenceCodec;
+import Utils.Randomiser.ReferencePool;
+import Utils.Randomiser.UniqueReferenceAllocator;
 
+import java.time.Clock;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -13,9 +18,12 @@ import static Utils.Converter.MoneyConverter.countryShortNames.UK;
 // This class represent a single BankAccount with linked user, holding some balance
 public class BankAccount implements Transactions {
 
-    MoneyConverter moneyDisplay = new MoneyConverter();
+    // Transaction references are unique across all accounts, 'A' for additions and 'R' for removals.
+    private static final UniqueReferenceAllocator TRANSACTION_REFERENCES = new UniqueReferenceAllocator(12);
+    // Optional, see useTransactionReferencePool. Without one, each transaction generates its reference when it is made.
+    private static volatile ReferencePool transactionReferencePool;
 
-    private int balanceInPence;
+    private long balanceInPence; // Kept as a long so that large balances do not overflow.
     int MINIMUM_BANK_BALANCE = Integer.MIN_VALUE;
     int MAXIMUM_BANK_BALANCE = Integer.MAX_VALUE;
     protected final String ACCOUNT_HOLDER;
@@ -23,61 +31,106 @@ public class BankAccount implements Transactions {
 
     // This is a list of objects that store details of individual transactions.
     private final List<TransactionRecord> transactionHistory;
+    // Same transactions, keyed by their packed reference number for constant time lookups.
+    private final LongHashMap<TransactionRecord> transactionsByReference;
 
     public BankAccount(String accountNumber, String accountHolder) {
         this.ACCOUNT_NUMBER = accountNumber;
         this.ACCOUNT_HOLDER = accountHolder;
         this.balanceInPence = 0;
         this.transactionHistory = new ArrayList<>();
+        this.transactionsByReference = new LongHashMap<>();
     }
 
+    // Throws ArithmeticException if the balance no longer fits in an int, use getBalanceInPenceAsLong instead.
     public int getBalanceInPence() {
+        return Math.toIntExact(balanceInPence);
+    }
+
+    public long getBalanceInPenceAsLong() {
         return balanceInPence;
     }
 
+    public Money getBalance() {
+        return Money.of(balanceInPence, UK);
+    }
+
     public String getFormattedBalance() {
-        return moneyDisplay.setBalance(this.balanceInPence).get(UK).toPound();
+        return MoneyFormatter.toPound(this.balanceInPence, UK);
     }
 
     public List<TransactionRecord> getTransactionHistory() {
         return transactionHistory;
     }
 
+    public TransactionRecord findTransaction(long referenceKey) {
+        return transactionsByReference.get(referenceKey);
+    }
+
+    public TransactionRecord findTransaction(String referenceNumber) {
+        long referenceKey = TransactionRecord.REFERENCE_CODEC.tryEncode(referenceNumber);
+        return referenceKey == ReferenceCodec.INVALID ? null : findTransaction(referenceKey);
+    }
+
     /*
     * Transaction Interface Methods Implementation
     * */
 
     private void addToTransactionHistory(TransactionRecord transactionRecord) {
         transactionHistory.add(transactionRecord);
+        transactionsByReference.put(transactionRecord.referenceKey(), transactionRecord);
+    }
+
+    /*
+    * Creates a pool of ready transaction references, kept topped up by a background thread, so a transaction only has to pop one.
+    * References left over from an earlier quarter are discarded, never used. Whoever starts the application owns the pool:
+    * pass it to useTransactionReferencePool, and close it on shutdown.
+    * */
+    public static ReferencePool newTransactionReferencePool(int capacityPerLetter) {
+        return new ReferencePool(BankAccount::nextTransactionReference, TransactionRecord.REFERENCE_CODEC,
+                Clock.systemDefaultZone(), capacityPerLetter, 'A', 'R');
+    }
+
+    // Makes every account take its transaction references from the pool; null goes back to generating them per transaction
+    public static void useTransactionReferencePool(ReferencePool pool) {
+        transactionReferencePool = pool;
+    }
+
+    private static long transactionReference(char identifierLetter) {
+        ReferencePool pool = transactionReferencePool;
+        return pool == null ? nextTransactionReference(identifierLetter) : pool.next(identifierLetter);
+    }
+
+    // Allocates a packed transaction reference without ever building its text form.
+    private static long nextTransactionReference(char identifierLetter) {
+        char quarterLabel = ReferenceCodec.quarterLabel(LocalDate.now().getMonth());
+        return TransactionRecord.REFERENCE_CODEC.encode(identifierLetter,
+                TRANSACTION_REFERENCES.nextSeed(identifierLetter, quarterLabel), quarterLabel);
     }
 
     @Override
     public void addFunds(int amount, String description) {
-        balanceInPence += amount;
+        balanceInPence = Math.addExact(balanceInPence, amount);
         addToTransactionHistory(
                 new TransactionRecord(
                         description,
-                        new MoneyConverter(() -> amount).setBalance(amount),
-                        new MoneyConverter(() -> balanceInPence).setBalance(balanceInPence),
+                        Money.of(amount, UK),
+                        Money.of(balanceInPence, UK),
                         LocalDateTime.now(),
-                        new GenerateReferenceNumber(
-                                LocalDate.now().getMonth(), 12)
-                                .generateReferenceNumber('A'))
+                        transactionReference('A'))
         );
     }
 
     @Override
     public void removeFunds(int amount, String description) {
-        balanceInPence -= amount;
+        balanceInPence = Math.subtractExact(balanceInPence, amount);
         addToTransactionHistory(
                 new TransactionRecord(
                         description,
-                        new MoneyConverter(() -> amount).setBalance(amount),
-                        new MoneyConverter(() -> balanceInPence).setBalance(balanceInPence),
+                        Money.of(amount, UK),
+                        Money.of(balanceInPence, UK),
                         LocalDateTime.now(),
-                        new GenerateReferenceNumber(
-                                LocalDate.now().getMonth(), 12)
-                                .generateReferenceNumber('R'))
+                        transactionReference('R'))
         );
     }
 }
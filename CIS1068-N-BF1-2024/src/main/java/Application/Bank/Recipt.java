@@ -3,11 +3,11 @@ package Application.Bank;
 import java.time.format.DateTimeFormatter;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import static Utils.Converter.MoneyConverter.countryShortNames.UK;
-
 // This class utility is responsible for generating receipts.
 public final class Recipt {
 
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy 'at' HH:mm:ss");
+
     public static String generateRecipt(BankAccount account) {
         StringBuilder userInformation = new StringBuilder();
         StringBuilder transactionInformation = new StringBuilder();
@@ -40,22 +40,25 @@ public final class Recipt {
                     .append(". ")
                     .append(transaction.description())
                     .append(" ")
-                    .append(transaction.referenceNumber().startsWith("A") ? "+" + transaction.transferAmount().get(UK).toPound() : "-" + transaction.transferAmount().get(UK).toPound())
-                    .append(" ( ")
-                    .append(transaction.transferAmount().get(UK).toPence())
+                    .append(transaction.isAddition() ? '+' : '-');
+            // Amounts are written straight into the receipt, no String is built per amount.
+            transaction.transferAmount().appendPound(transactionInformation)
+                    .append(" ( ");
+            transaction.transferAmount().appendPence(transactionInformation)
                     .append(" )")
                     .append(lineSeparator)
-                    .append("New Balance: ")
-                    .append(transaction.newBalance().get(UK).toPound())
-                    .append(" ( ")
-                    .append(transaction.newBalance().get(UK).toPence())
+                    .append("New Balance: ");
+            transaction.newBalance().appendPound(transactionInformation)
+                    .append(" ( ");
+            transaction.newBalance().appendPence(transactionInformation)
                     .append(" )")
                     .append(lineSeparator)
-                    .append("Date: ")
-                    .append(transaction.dateTime().format(DateTimeFormatter.ofPattern("dd/MM/yyyy 'at' HH:mm:ss")))
+                    .append("Date: ");
+            DATE_FORMAT.formatTo(transaction.dateTime(), transactionInformation);
+            transactionInformation
                     .append(lineSeparator)
-                    .append("Reference Number: ")
-                    .append(transaction.referenceNumber())
+                    .append("Reference Number: ");
+            TransactionRecord.REFERENCE_CODEC.appendTo(transaction.referenceKey(), transactionInformation)
                     .append(lineSeparator);
 
         });
@@ -1,13 +1,19 @@
 package Application.Bank;
 
-import Utils.Converter.MoneyConverter;
+import Utils.Converter.Money;
+import Utils.Randomiser.ReferenceCodec;
 
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 
 import static java.lang.System.out;
 
-// Stores details of each transaction made
-public record TransactionRecord(String description, MoneyConverter transferAmount, MoneyConverter newBalance, LocalDateTime dateTime, String referenceNumber) {
+// Stores details of each transaction made. The reference number is kept packed into a long, see REFERENCE_CODEC.
+public record TransactionRecord(String description, Money transferAmount, Money newBalance, LocalDateTime dateTime, long referenceKey) {
+    // Transaction references are 'A' (addition) or 'R' (removal) + 12 digits + quarter label.
+    public static final ReferenceCodec REFERENCE_CODEC = ReferenceCodec.forLength(12);
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy 'at' HH:mm:ss");
+
     static {
         out.println("TransactionRecord class loaded");
     }
@@ -17,14 +23,34 @@ public record TransactionRecord(String description, MoneyConverter transferAmoun
             throw new IllegalArgumentException("Transaction description cannot be empty");
     }
 
+    public TransactionRecord(String description, Money transferAmount, Money newBalance, LocalDateTime dateTime, String referenceNumber) {
+        this(description, transferAmount, newBalance, dateTime, REFERENCE_CODEC.encode(referenceNumber));
+    }
+
+    // Text form of the reference number, only built when it is displayed.
+    public String referenceNumber() {
+        return REFERENCE_CODEC.toString(referenceKey);
+    }
+
+    public boolean isAddition() {
+        return REFERENCE_CODEC.letterOf(referenceKey) == 'A';
+    }
+
     @Override
     public String toString() {
-        return "TransactionRecord {" +
-                "description = '" + description + '\'' +
-                ", transferAmount = " + transferAmount.get(MoneyConverter.countryShortNames.UK).toPound() +
-                ", newBalance = " + newBalance.get(MoneyConverter.countryShortNames.UK).toPound() +
-                ", dateTime = " + dateTime.format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy 'at' HH:mm:ss")) +
-                ", referenceNumber = '" + referenceNumber + '\'' +
-                '}';
+        StringBuilder builder = new StringBuilder(160)
+                .append("TransactionRecord {")
+                .append("description = '").append(description).append('\'')
+                .append(", transferAmount = ");
+        transferAmount.appendPound(builder)
+                .append(", newBalance = ");
+        newBalance.appendPound(builder)
+                .append(", dateTime = ");
+        DATE_FORMAT.formatTo(dateTime, builder);
+        builder.append(", referenceNumber = '");
+        return REFERENCE_CODEC.appendTo(referenceKey, builder)
+                .append('\'')
+                .append('}')
+                .toString();
     }
 }
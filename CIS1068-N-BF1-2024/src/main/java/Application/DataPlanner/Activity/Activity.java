@@ -1,12 +1,11 @@
 package Application.DataPlanner.Activity;
 
 import Application.DataPlanner.Activity.ActivityAddons.AddOn;
+import Application.DataPlanner.Activity.ActivityAddons.AddOnSet;
+import Utils.Converter.Money;
 import Utils.Converter.MoneyConverter;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
 
 // Defines the contract for each activity
@@ -46,9 +45,13 @@ public abstract class Activity {
         this.baseCostInPence = metadata.baseCostInPence();
         this.durationInMinutes = metadata.durationInMinutes();
         this.isInsuranceMandatory = metadata.isInsuranceMandatory();
-        this.FEE_PER_PENCE = validateFeePerPence((byte) 0); // Private fee per pence, max 85, a hard profit for the company to make
+        this.capacity = metadata.capacity();
+        this.FEE_PER_PENCE = validateFeePerPence(DEFAULT_FEE_PER_PENCE); // Private fee per pence, max 85, a hard profit for the company to make
         this.MAXIMUM_NO_OF_ADDONS = AddOn.MAX_ADDONS; // Maximum number of addons
         this.activityAddons = addonListInitialiser(metadata.activityAddons());
+        // The base cost and fee rate never change, so the fee is worked out once
+        this.feeInPence = Money.percentOf(this.baseCostInPence, this.FEE_PER_PENCE);
+        this.finalCostInPence = this.baseCostInPence + this.feeInPence + this.activityAddons.getCost();
     }
 
     // The location of individual activity, for better flexibility it is recommended to move it outside the scope.
@@ -67,7 +70,10 @@ public abstract class Activity {
         return this.code;
     }
     protected MoneyConverter getCostWithFee() {
-        return new MoneyConverter().setBalance(this.baseCostInPence + getFee().get().toPence());
+        return new MoneyConverter().setBalance(Math.toIntExact(getCostWithFeeInPence()));
+    }
+    public long getCostWithFeeInPence() {
+        return this.baseCostInPence + getFeeInPence();
     }
     public String getReadableName() {
         return readableName;
@@ -77,7 +83,9 @@ public abstract class Activity {
     public LocalDateTime getDateAndTime() { return dateAndTime; }
     public int getBaseCostInPence() { return baseCostInPence; }
     public boolean isInsuranceMandatory() { return isInsuranceMandatory; }
-    public List<AddOn> getActivityAddons() { return activityAddons; }
+    public int getCapacity() { return capacity; } // ActivityMetadata.UNLIMITED_CAPACITY if there is no limit
+    public List<AddOn> getActivityAddons() { return activityAddons.toList(); } // Unmodifiable, use addAddon and removeAddon
+    public AddOnSet getAddOnSet() { return activityAddons; }
 
     // Setters
     public Activity setReadableName(String readableName) { this.readableName = readableName; return this; }
@@ -86,48 +94,59 @@ public abstract class Activity {
     public Activity setDateAndTime(LocalDateTime dateAndTime) { this.dateAndTime = dateAndTime; return this; }
     public Activity setDurationInMinutes(int durationInMinutes) { this.durationInMinutes = durationInMinutes; return this; }
     public Activity setInsuranceMandatory(boolean insuranceMandatory) { isInsuranceMandatory = insuranceMandatory; return this; }
-    public Activity setActivityAddons(List<AddOn> activityAddons) { this.activityAddons = activityAddons; return this; }
+    public Activity setActivityAddons(List<AddOn> activityAddons) { updateAddons(addonListInitialiser(activityAddons)); return this; }
 
     // Addons
-    private ArrayList<AddOn> addonListInitialiser(ArrayList<AddOn> addons) {
+    private AddOnSet addonListInitialiser(List<AddOn> addons) {
         if (addons.size() > MAXIMUM_NO_OF_ADDONS) {
             throw new IllegalArgumentException("Maximum number of addons reached, current " + addons.size() + " out of " + MAXIMUM_NO_OF_ADDONS);
         }
-        for (int i = 0; i < addons.size(); i++) {
-            for (int j = i + 1; j < addons.size(); j++) {
-                if (addons.get(i).returnClass().equals(addons.get(j).returnClass())) {
-                    throw new IllegalArgumentException("Duplicate addon found: " + addons.get(i).returnClass());
-                }
-            }
-        }
-    return new ArrayList<>(addons);
-
+        return AddOnSet.of(addons); // Rejects duplicates
     }
 
     public void addAddon(AddOn addon) {
+        if (activityAddons.contains(addon))
+            throw new IllegalArgumentException("Duplicate addon found: " + addon.returnClass());
         if (activityAddons.size() < MAXIMUM_NO_OF_ADDONS)
-            activityAddons.add(addon);
+            updateAddons(activityAddons.with(addon));
         else throw new IllegalArgumentException("Maximum number of addons reached, current " + activityAddons.size() + " out of " + MAXIMUM_NO_OF_ADDONS);
     }
 
     public void removeAddon(AddOn addon) {
         if (activityAddons.contains(addon))
-            activityAddons.remove(addon);
+            updateAddons(activityAddons.without(addon));
         else throw new IllegalArgumentException("Addon " + addon + " not found in the list " + activityAddons);
     }
 
     public int addonsCost() {
-        return activityAddons.stream().mapToInt(AddOn::getCost).sum();
+        return activityAddons.getCost();
+    }
+
+    // Addons are the only input to the final cost that can change, so every change goes through here to keep the cached cost in step
+    private void updateAddons(AddOnSet addons) {
+        this.activityAddons = addons;
+        this.finalCostInPence = getCostWithFeeInPence() + addons.getCost();
     }
 
     // Abstract methods
     public abstract int calculateFinalCostInPence();
 
+    // Same as calculateFinalCostInPence, but held as a long so it cannot overflow. Cached, see updateAddons
+    public long getFinalCostInPence() {
+        return this.finalCostInPence;
+    }
+
+    public Money getFinalCost() {
+        return Money.ofPence(getFinalCostInPence());
+    }
+
     public MoneyConverter getFee() {
-        // Calculates total fee amount given the base cost
-        double fee = (double) this.baseCostInPence * this.FEE_PER_PENCE / 100;
-        int feeInPence = BigDecimal.valueOf(fee).setScale(0, RoundingMode.HALF_UP).intValue();
-        return new MoneyConverter().setBalance(feeInPence);
+        return new MoneyConverter().setBalance(Math.toIntExact(getFeeInPence()));
+    }
+
+    public long getFeeInPence() {
+        // Total fee amount given the base cost, rounded half up with integer arithmetic when the activity was created
+        return this.feeInPence;
     }
 
     // Private methods
@@ -164,12 +183,16 @@ public abstract class Activity {
     private final String code;
     private final byte MAXIMUM_NO_OF_ADDONS;
     private final byte FEE_PER_PENCE; // Fee per one pound, max 85
-    private List<AddOn> activityAddons;
+    static final byte DEFAULT_FEE_PER_PENCE = 0; // Shared with ActivityColumnStore, which prices rows the same way
+    private AddOnSet activityAddons;
     private String readableName;
     private String description;
     private Location location;
     private LocalDateTime dateAndTime;
     private final int baseCostInPence;
+    private final long feeInPence;
+    private long finalCostInPence; // Base cost + fee + addons, updated whenever the addons change
     private int durationInMinutes;
     private boolean isInsuranceMandatory;
+    private final int capacity;
 }
@@ -3,21 +3,22 @@ package Application.DataPlanner.Activity.ActivityAddons;
 public sealed interface AddOn permits InsuranceAddon, PhotographyAddon, TravelAddon {
 
     /**
-     * Returns the cost of the addon in pence. This solution minimises repeated code across AddOn classes.
+     * Returns the cost of the addon in pence. Each addon returns its own constant, so pricing never needs reflection.
      *
      * @return the cost of the addon in pence
      */
-    default int getCost() {
-        try { return this.getClass().getDeclaredField("ADDON_COST").getInt(this); }
-        catch (NoSuchFieldException | IllegalAccessException e) {
-            System.err.println("Error: " + e.getMessage());
-            return 0;
-        }
-    };
+    int getCost();
+
+    /**
+     * Returns the position of the addon in an {@link AddOnSet} bitmask, from 0 to {@link #MAX_ADDONS} - 1.
+     *
+     * @return the index of the addon
+     */
+    int getIndex();
 
     default Class<? extends AddOn> returnClass() {
         return this.getClass();
     }; // Returns the ID of the addon
 
     int MAX_ADDONS = 3; // Maximum number of addons allowed per one activity
-}
\ No newline at end of file
+}
@@ -0,0 +1,110 @@
+package Application.DataPlanner.Activity.ActivityAddons;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/*
+* An immutable set of addons stored as a bitmask, one bit per AddOn type (see AddOn.getIndex()).
+* As there are only 2^MAX_ADDONS possible sets, every set, its total cost and its list view are built once when the class loads,
+* so adding, removing, checking for duplicates and pricing are all single array lookups that never allocate.
+* */
+public final class AddOnSet {
+
+    // Indexed by AddOn.getIndex().
+    private static final AddOn[] ADDONS = {InsuranceAddon.INSTANCE, PhotographyAddon.INSTANCE, TravelAddon.INSTANCE};
+    // Indexed by mask.
+    private static final AddOnSet[] SETS = new AddOnSet[1 << ADDONS.length];
+
+    static {
+        for (int mask = 0; mask < SETS.length; mask++) {
+            int cost = 0;
+            List<AddOn> addons = new ArrayList<>(Integer.bitCount(mask));
+            for (AddOn addon : ADDONS) {
+                if ((mask & (1 << addon.getIndex())) != 0) {
+                    cost += addon.getCost();
+                    addons.add(addon);
+                }
+            }
+            SETS[mask] = new AddOnSet(mask, cost, Collections.unmodifiableList(addons));
+        }
+    }
+
+    public static final AddOnSet EMPTY = SETS[0];
+
+    private final int mask;
+    private final int cost;
+    private final List<AddOn> addons;
+
+    private AddOnSet(int mask, int cost, List<AddOn> addons) {
+        this.mask = mask;
+        this.cost = cost;
+        this.addons = addons;
+    }
+
+    public static AddOnSet ofMask(int mask) {
+        if (mask < 0 || mask >= SETS.length) {
+            throw new IllegalArgumentException("Invalid addon mask: " + mask);
+        }
+        return SETS[mask];
+    }
+
+    // Throws if the same type of addon appears twice, like Activity always has.
+    public static AddOnSet of(Collection<? extends AddOn> addons) {
+        int mask = 0;
+        for (AddOn addon : addons) {
+            int bit = bitOf(addon);
+            if ((mask & bit) != 0) {
+                throw new IllegalArgumentException("Duplicate addon found: " + addon.returnClass());
+            }
+            mask |= bit;
+        }
+        return SETS[mask];
+    }
+
+    public boolean contains(AddOn addon) {
+        return (mask & bitOf(addon)) != 0;
+    }
+
+    // Returns this set if the addon is already in it.
+    public AddOnSet with(AddOn addon) {
+        return SETS[mask | bitOf(addon)];
+    }
+
+    // Returns this set if the addon is not in it.
+    public AddOnSet without(AddOn addon) {
+        return SETS[mask & ~bitOf(addon)];
+    }
+
+    public int size() {
+        return Integer.bitCount(mask);
+    }
+
+    public boolean isEmpty() {
+        return mask == 0;
+    }
+
+    // Total cost of every addon in the set, in pence.
+    public int getCost() {
+        return cost;
+    }
+
+    public int getMask() {
+        return mask;
+    }
+
+    // Unmodifiable, ordered by AddOn.getIndex(), and shared by every user of this set.
+    public List<AddOn> toList() {
+        return addons;
+    }
+
+    @Override
+    public String toString() {
+        return addons.toString();
+    }
+
+    private static int bitOf(AddOn addon) {
+        return 1 << addon.getIndex();
+    }
+}
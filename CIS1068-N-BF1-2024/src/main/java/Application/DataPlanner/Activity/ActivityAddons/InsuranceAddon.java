@@ -1,10 +1,36 @@
 package Application.DataPlanner.Activity.ActivityAddons;
 
+// Addons are stateless, so prefer the shared INSTANCE; every instance of this class is equal to every other.
 public final class InsuranceAddon implements AddOn {
 
-    public final int ADDON_COST;
+    public static final int ADDON_COST = 50;
+    public static final InsuranceAddon INSTANCE = new InsuranceAddon();
 
     public InsuranceAddon() {
-        ADDON_COST = 50;
+    }
+
+    @Override
+    public int getCost() {
+        return ADDON_COST;
+    }
+
+    @Override
+    public int getIndex() {
+        return 0;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof InsuranceAddon;
+    }
+
+    @Override
+    public int hashCode() {
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        return "InsuranceAddon";
     }
 }
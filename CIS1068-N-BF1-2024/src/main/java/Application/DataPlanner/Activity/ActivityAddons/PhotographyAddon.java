@@ -1,10 +1,36 @@
 package Application.DataPlanner.Activity.ActivityAddons;
 
+// Addons are stateless, so prefer the shared INSTANCE; every instance of this class is equal to every other.
 public final class PhotographyAddon implements AddOn {
 
-    public final int ADDON_COST;
+    public static final int ADDON_COST = 30;
+    public static final PhotographyAddon INSTANCE = new PhotographyAddon();
 
     public PhotographyAddon() {
-        ADDON_COST = 30;
+    }
+
+    @Override
+    public int getCost() {
+        return ADDON_COST;
+    }
+
+    @Override
+    public int getIndex() {
+        return 1;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof PhotographyAddon;
+    }
+
+    @Override
+    public int hashCode() {
+        return 1;
+    }
+
+    @Override
+    public String toString() {
+        return "PhotographyAddon";
     }
 }
@@ -1,10 +1,36 @@
 package Application.DataPlanner.Activity.ActivityAddons;
 
+// Addons are stateless, so prefer the shared INSTANCE; every instance of this class is equal to every other.
 public final class TravelAddon implements AddOn {
 
-    public final int ADDON_COST;
+    public static final int ADDON_COST = 10;
+    public static final TravelAddon INSTANCE = new TravelAddon();
 
     public TravelAddon() {
-        ADDON_COST = 10;
+    }
+
+    @Override
+    public int getCost() {
+        return ADDON_COST;
+    }
+
+    @Override
+    public int getIndex() {
+        return 2;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof TravelAddon;
+    }
+
+    @Override
+    public int hashCode() {
+        return 2;
+    }
+
+    @Override
+    public String toString() {
+        return "TravelAddon";
     }
 }
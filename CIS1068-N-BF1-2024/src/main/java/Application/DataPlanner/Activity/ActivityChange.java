@@ -0,0 +1,19 @@
+package Application.DataPlanner.Activity;
+
+/*
+* One change to an ActivityRegistry, as delivered by its ActivityChangeFeed.
+* Sequence numbers start at 1 and go up by one per change, in the order the registry applied them.
+* 'previous' is null for an insert and 'current' is null for a removal, so each change carries everything needed to apply it.
+* */
+public record ActivityChange(long sequence, Kind kind, ActivityMetadata previous, ActivityMetadata current) {
+
+    public enum Kind {
+        INSERT,
+        UPDATE,
+        REMOVE
+    }
+
+    public String referenceNumber() {
+        return current != null ? current.referenceNumber() : previous.referenceNumber();
+    }
+}
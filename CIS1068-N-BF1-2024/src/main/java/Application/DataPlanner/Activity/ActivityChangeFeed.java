@@ -0,0 +1,191 @@
+package Application.DataPlanner.Activity;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*
+* An ordered stream of every insert, update and removal made to an ActivityRegistry, so caches and indexes built from
+* the registry can follow it change by change instead of re-scanning getMetadataMap().
+*
+* The most recent changes are kept in a fixed-size ring, which is what lets a subscriber resume from a sequence number,
+* e.g. after a restart. Subscribers pull with Subscription.request(n) and are sent changes on the feed's executor, never on
+* the thread changing the registry, so a slow subscriber cannot hold writers up. One that falls so far behind that the
+* changes it still needs have left the ring gets onError and has to start again from a fresh copy of the registry.
+*
+* To build a copy and then follow it: take registry.snapshot(), copy its activities, then subscribe from
+* snapshot().sequence() + 1. The snapshot holds exactly the changes up to its sequence, so nothing is missed or sent twice.
+* */
+public class ActivityChangeFeed implements Flow.Publisher<ActivityChange> {
+
+    public static final int DEFAULT_RETAINED_CHANGES = 4096;
+
+    private final AtomicReferenceArray<ActivityChange> ring;
+    // Every change up to here is in the ring. Changes can be published slightly out of order, see publish()
+    private final AtomicLong latestSequence = new AtomicLong();
+    private final Executor executor;
+    private final Set<ChangeSubscription> subscriptions = new CopyOnWriteArraySet<>();
+
+    public ActivityChangeFeed() {
+        this(DEFAULT_RETAINED_CHANGES, ForkJoinPool.commonPool());
+    }
+
+    public ActivityChangeFeed(int retainedChanges, Executor executor) {
+        if (retainedChanges < 1) {
+            throw new IllegalArgumentException("Feed must retain at least one change");
+        }
+        this.ring = new AtomicReferenceArray<>(retainedChanges);
+        this.executor = executor;
+    }
+
+    /*
+    * The registry numbers each change in the same compare-and-set that makes it part of snapshot(), so two writers may
+    * publish 6 before 5. Each writer stores its own change and then moves latestSequence past every change that is in place,
+    * so subscribers are only ever shown an unbroken run. Whichever of the two stores last sees the other and moves past both.
+    * */
+    void publish(ActivityChange change) {
+        ring.set(slotOf(change.sequence()), change);
+        long latest = latestSequence.get();
+        while (true) {
+            ActivityChange next = ring.get(slotOf(latest + 1));
+            if (next == null || next.sequence() != latest + 1) break;
+            if (latestSequence.compareAndSet(latest, latest + 1)) latest++;
+            else latest = latestSequence.get();
+        }
+        for (ChangeSubscription subscription : subscriptions) subscription.signal();
+    }
+
+    // Sequence number of the most recent change, 0 if there has been none
+    public long getLatestSequence() {
+        return latestSequence.get();
+    }
+
+    // Oldest sequence number that can still be resumed from
+    public long getOldestRetainedSequence() {
+        return Math.max(1, latestSequence.get() - ring.length() + 1);
+    }
+
+    // Returns null if the change has not happened yet or is no longer retained
+    public ActivityChange getChange(long sequence) {
+        if (sequence < 1 || sequence > latestSequence.get()) return null;
+        ActivityChange change = ring.get(slotOf(sequence));
+        return change != null && change.sequence() == sequence ? change : null; // A later change may have taken its slot
+    }
+
+    private int slotOf(long sequence) {
+        return (int) (sequence % ring.length());
+    }
+
+    // Receives only changes made from now on
+    @Override
+    public void subscribe(Flow.Subscriber<? super ActivityChange> subscriber) {
+        subscribe(subscriber, getLatestSequence() + 1);
+    }
+
+    /*
+    * Receives every change from the given sequence number on, starting with the retained ones.
+    * If that sequence is no longer retained, the subscriber gets onError straight after onSubscribe.
+    * */
+    public void subscribe(Flow.Subscriber<? super ActivityChange> subscriber, long fromSequence) {
+        if (subscriber == null) {
+            throw new NullPointerException("Subscriber cannot be null");
+        }
+        if (fromSequence < 1) {
+            throw new IllegalArgumentException("Sequence numbers start at 1, got " + fromSequence);
+        }
+        ChangeSubscription subscription = new ChangeSubscription(subscriber, fromSequence);
+        // onSubscribe must come before anything else the subscriber is sent, so publish() only sees the subscription after it
+        subscriber.onSubscribe(subscription);
+        subscriptions.add(subscription);
+        if (subscription.cancelled) {
+            subscriptions.remove(subscription); // cancel() ran before it was added, e.g. from inside onSubscribe
+            return;
+        }
+        subscription.signal(); // Reports a resume point that is already gone, even before anything is requested
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    private final class ChangeSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super ActivityChange> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger pendingSignals = new AtomicInteger(); // Non-zero while a drain is scheduled or running
+        private long nextSequence; // Only touched by the drain, which never runs twice at once
+        private volatile boolean cancelled = false;
+        private volatile Throwable requestError;
+
+        ChangeSubscription(Flow.Subscriber<? super ActivityChange> subscriber, long nextSequence) {
+            this.subscriber = subscriber;
+            this.nextSequence = nextSequence;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                requestError = new IllegalArgumentException("Requested " + n + " changes, must be positive");
+            } else {
+                // Unbounded once the sum would overflow, as Flow allows
+                demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+        }
+
+        void signal() {
+            if (pendingSignals.getAndIncrement() == 0) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            int signals = pendingSignals.get();
+            while (true) {
+                if (cancelled) return;
+                if (requestError != null) {
+                    fail(requestError);
+                    return;
+                }
+                long available = getLatestSequence();
+                while (demand.get() > 0 && nextSequence <= available && !cancelled) {
+                    ActivityChange change = getChange(nextSequence);
+                    if (change == null) {
+                        fail(new IllegalStateException("Change " + nextSequence + " is no longer retained, the oldest is " + getOldestRetainedSequence()));
+                        return;
+                    }
+                    nextSequence++;
+                    if (demand.get() != Long.MAX_VALUE) demand.decrementAndGet();
+                    try {
+                        subscriber.onNext(change);
+                    } catch (RuntimeException e) {
+                        fail(e); // A subscriber that throws is cut off rather than left half way through a change
+                        return;
+                    }
+                }
+                if (nextSequence < getOldestRetainedSequence()) {
+                    fail(new IllegalStateException("Change " + nextSequence + " is no longer retained, the oldest is " + getOldestRetainedSequence()));
+                    return;
+                }
+                // Stop only if nothing signalled while draining, otherwise go round again
+                signals = pendingSignals.addAndGet(-signals);
+                if (signals == 0) return;
+            }
+        }
+
+        private void fail(Throwable error) {
+            cancel();
+            subscriber.onError(error);
+        }
+    }
+}
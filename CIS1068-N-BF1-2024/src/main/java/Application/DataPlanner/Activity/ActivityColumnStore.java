@@ -0,0 +1,205 @@
+package Application.DataPlanner.Activity;
+
+import Application.DataPlanner.Activity.ActivityAddons.AddOn;
+import Application.DataPlanner.Activity.ActivityAddons.AddOnSet;
+import Utils.Converter.Money;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static Application.DataPlanner.Activity.Activity.Location;
+
+/*
+* Holds activity data column by column in parallel primitive arrays instead of one object graph per activity.
+* A row costs about 40 bytes plus its share of the interned strings, against several hundred bytes for an Activity
+* with its Strings, LocalDateTime and addon list, and scanning one column (e.g. every cost) reads memory in order.
+*
+* Rows are read through a Row, a reusable flyweight with the same getters as Activity, so walking millions of rows
+* creates no objects. Use one store per thread, or finish adding before sharing it for reading.
+* */
+public class ActivityColumnStore {
+
+    private static final Location[] LOCATIONS = Location.values();
+    private static final long NO_DATE_AND_TIME = Long.MIN_VALUE;
+    private static final byte INSURANCE_MANDATORY = 1;
+
+    private final StringInterner strings = new StringInterner();
+    private int size = 0;
+
+    // Columns, indexed by row
+    private int[] referenceIds;
+    private int[] nameIds;
+    private int[] descriptionIds;
+    private long[] epochSeconds; // UTC, NO_DATE_AND_TIME when there is none
+    private int[] nanos;
+    private int[] baseCosts;
+    private int[] durations;
+    private int[] capacities;
+    private byte[] locations; // Ordinal, -1 when there is none
+    private byte[] addonMasks; // See AddOnSet.getMask()
+    private byte[] flags;
+
+    public ActivityColumnStore() {
+        this(1024);
+    }
+
+    public ActivityColumnStore(int initialCapacity) {
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException("Initial capacity must be at least 1");
+        }
+        referenceIds = new int[initialCapacity];
+        nameIds = new int[initialCapacity];
+        descriptionIds = new int[initialCapacity];
+        epochSeconds = new long[initialCapacity];
+        nanos = new int[initialCapacity];
+        baseCosts = new int[initialCapacity];
+        durations = new int[initialCapacity];
+        capacities = new int[initialCapacity];
+        locations = new byte[initialCapacity];
+        addonMasks = new byte[initialCapacity];
+        flags = new byte[initialCapacity];
+    }
+
+    public static ActivityColumnStore of(ActivityRegistry registry) {
+        ActivityColumnStore store = new ActivityColumnStore(Math.max(1, registry.getTotalActivities()));
+        for (ActivityMetadata activity : registry.getMetadataMap().values()) store.add(activity);
+        return store;
+    }
+
+    public static ActivityColumnStore of(ActivitySnapshot snapshot) {
+        ActivityColumnStore store = new ActivityColumnStore(Math.max(1, snapshot.size()));
+        for (int i = 0; i < snapshot.size(); i++) store.add(snapshot.get(i));
+        return store;
+    }
+
+    // Appends the activity and returns its row
+    public int add(ActivityMetadata activity) {
+        if (size == baseCosts.length) grow();
+        int row = size;
+        referenceIds[row] = strings.intern(activity.referenceNumber());
+        nameIds[row] = strings.intern(activity.readableName());
+        descriptionIds[row] = strings.intern(activity.description());
+        LocalDateTime dateAndTime = activity.dateAndTime();
+        epochSeconds[row] = dateAndTime == null ? NO_DATE_AND_TIME : dateAndTime.toEpochSecond(ZoneOffset.UTC);
+        nanos[row] = dateAndTime == null ? 0 : dateAndTime.getNano();
+        baseCosts[row] = activity.baseCostInPence();
+        durations[row] = activity.durationInMinutes();
+        capacities[row] = activity.capacity();
+        locations[row] = (byte) (activity.location() == null ? -1 : activity.location().ordinal());
+        int addonMask = 0;
+        for (AddOn addon : activity.activityAddons()) addonMask |= 1 << addon.getIndex();
+        addonMasks[row] = (byte) addonMask;
+        flags[row] = activity.isInsuranceMandatory() ? INSURANCE_MANDATORY : 0;
+        return size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // A flyweight positioned on the given row; move it with Row.moveTo instead of asking for a new one per row
+    public Row row(int row) {
+        return new Row().moveTo(row);
+    }
+
+    // Column scans
+
+    public long totalBaseCostInPence() {
+        long total = 0;
+        for (int row = 0; row < size; row++) total += baseCosts[row];
+        return total;
+    }
+
+    public long totalFinalCostInPence() {
+        long total = 0;
+        for (int row = 0; row < size; row++) total += finalCostInPence(row);
+        return total;
+    }
+
+    // Rows whose base cost is between the bounds (both inclusive), in row order
+    public int[] rowsWithBaseCostBetween(int minCostInPence, int maxCostInPence) {
+        int[] matches = new int[16];
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            int cost = baseCosts[row];
+            if (cost >= minCostInPence && cost <= maxCostInPence) {
+                if (count == matches.length) matches = Arrays.copyOf(matches, count * 2);
+                matches[count++] = row;
+            }
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    public int countAt(Location location) {
+        byte ordinal = (byte) location.ordinal();
+        int count = 0;
+        for (int row = 0; row < size; row++) if (locations[row] == ordinal) count++;
+        return count;
+    }
+
+    private long finalCostInPence(int row) {
+        int baseCost = baseCosts[row];
+        return baseCost + Money.percentOf(baseCost, Activity.DEFAULT_FEE_PER_PENCE) + AddOnSet.ofMask(addonMasks[row]).getCost();
+    }
+
+    private void grow() {
+        int capacity = Math.toIntExact(Math.min((long) baseCosts.length * 2, Integer.MAX_VALUE - 8));
+        if (capacity == baseCosts.length) {
+            throw new IllegalStateException("Column store is full at " + size + " rows");
+        }
+        referenceIds = Arrays.copyOf(referenceIds, capacity);
+        nameIds = Arrays.copyOf(nameIds, capacity);
+        descriptionIds = Arrays.copyOf(descriptionIds, capacity);
+        epochSeconds = Arrays.copyOf(epochSeconds, capacity);
+        nanos = Arrays.copyOf(nanos, capacity);
+        baseCosts = Arrays.copyOf(baseCosts, capacity);
+        durations = Arrays.copyOf(durations, capacity);
+        capacities = Arrays.copyOf(capacities, capacity);
+        locations = Arrays.copyOf(locations, capacity);
+        addonMasks = Arrays.copyOf(addonMasks, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+    }
+
+    /*
+    * A view of one row with the same getters as Activity. It holds nothing but the row number,
+    * so one Row can walk the whole store: for (int i = 0; i < store.size(); i++) row.moveTo(i)...
+    * */
+    public final class Row {
+        private int row;
+
+        private Row() {
+        }
+
+        public Row moveTo(int row) {
+            if (row < 0 || row >= size) {
+                throw new IndexOutOfBoundsException("Row " + row + " out of " + size);
+            }
+            this.row = row;
+            return this;
+        }
+
+        public int getRow() { return row; }
+        public String getCode() { return strings.get(referenceIds[row]); }
+        public String getReadableName() { return strings.get(nameIds[row]); }
+        public String getDescription() { return strings.get(descriptionIds[row]); }
+        public Location getLocation() { return locations[row] < 0 ? null : LOCATIONS[locations[row]]; }
+        public LocalDateTime getDateAndTime() {
+            return epochSeconds[row] == NO_DATE_AND_TIME ? null : LocalDateTime.ofEpochSecond(epochSeconds[row], nanos[row], ZoneOffset.UTC);
+        }
+        public long getEpochSecond() { return epochSeconds[row]; }
+        public int getBaseCostInPence() { return baseCosts[row]; }
+        public int getDurationInMinutes() { return durations[row]; }
+        public int getCapacity() { return capacities[row]; }
+        public boolean isInsuranceMandatory() { return (flags[row] & INSURANCE_MANDATORY) != 0; }
+        public AddOnSet getAddOnSet() { return AddOnSet.ofMask(addonMasks[row]); }
+        public long getFinalCostInPence() { return finalCostInPence(row); }
+
+        // Copies the row out as metadata, e.g. to hand it to an ActivityRegistry and ActivityFactory
+        public ActivityMetadata toMetadata() {
+            return new ActivityMetadata(getCode(), getReadableName(), getDescription(), getLocation(), getDateAndTime(),
+                    getBaseCostInPence(), getDurationInMinutes(), isInsuranceMandatory(), new ArrayList<>(getAddOnSet().toList()), getCapacity());
+        }
+    }
+}
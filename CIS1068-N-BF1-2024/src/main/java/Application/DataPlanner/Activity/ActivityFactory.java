@@ -5,6 +5,11 @@ import Application.DataPlanner.Activity.ActivityTypes.CookeryClassActivity;
 import Application.DataPlanner.Activity.ActivityTypes.OrigamiActivity;
 import Application.DataPlanner.Activity.ActivityTypes.SASCourseActivity;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
 import static java.lang.System.err;
 
 public class ActivityFactory {
@@ -15,38 +20,88 @@ public class ActivityFactory {
     and knows which Activity class corresponds to each activity code.
     * */
 
+    // One entry per activity type, resolved once when the class loads, so creating an activity needs no reflection.
+    private record ActivityType(String classReference, Class<? extends Activity> type, Function<ActivityMetadata, Activity> constructor) {}
+
+    private static final ActivityType[] ACTIVITY_TYPES = {
+            new ActivityType(BaseActivity.classReference, BaseActivity.class, BaseActivity::new),
+            new ActivityType(CookeryClassActivity.classReference, CookeryClassActivity.class, CookeryClassActivity::new),
+            new ActivityType(OrigamiActivity.classReference, OrigamiActivity.class, OrigamiActivity::new),
+            new ActivityType(SASCourseActivity.classReference, SASCourseActivity.class, SASCourseActivity::new)
+    };
+
     private final ActivityRegistry registry;
 
     public ActivityFactory(ActivityRegistry registry) {
         this.registry = registry;
     }
 
-    private Activity createActivity(String code) throws NoSuchFieldException {
+    private Activity createActivity(String code) {
         ActivityMetadata metadata = registry.getMetadataMap().get(code);
         if (metadata == null) {
             throw new IllegalArgumentException("No such activity: " + code + " in the registry " + System.identityHashCode(registry));
         }
 
-        return switch (metadata.referenceNumber().split("_")[0]) {
-            case BaseActivity.classReference -> new BaseActivity(metadata);
-            case CookeryClassActivity.classReference -> new CookeryClassActivity(metadata);
-            case OrigamiActivity.classReference -> new OrigamiActivity(metadata);
-            case SASCourseActivity.classReference -> new SASCourseActivity(metadata);
-            default -> throw new IllegalArgumentException("No such activity: " + metadata.referenceNumber());
-        };
+        ActivityType activityType = typeOfReference(metadata.referenceNumber());
+        if (activityType == null) {
+            throw new IllegalArgumentException("No such activity: " + metadata.referenceNumber());
+        }
+        return activityType.constructor().apply(metadata);
     }
 
     public Activity initialiseActivity(Class<? extends Activity> theClass, String individualReferenceCode) {
         try
         {
-            String activityReferenceCode = theClass.getDeclaredField("classReference").get(null).toString(); // Samples the general ID
-            return this.createActivity(registry.uniqueReferenceGeneratorAndIdentifier(individualReferenceCode, activityReferenceCode));
+            ActivityType activityType = typeOfClass(theClass);
+            if (activityType == null) {
+                throw new IllegalArgumentException("Unknown activity class: " + theClass.getName());
+            }
+            return this.createActivity(registry.uniqueReferenceGeneratorAndIdentifier(individualReferenceCode, activityType.classReference()));
         }
-        catch (IllegalArgumentException | NoSuchFieldException | IllegalAccessException e)
+        catch (IllegalArgumentException e)
         {
             err.println("Failed to create activity: " + e.getMessage()); // Only for debugging, can stay due to application having GUI
             throw new RuntimeException(e);
         }
     }
-    
+
+    /*
+    * Creates one activity for each full reference number, e.g. "ORG-00_ORG01", in the same order.
+    * Useful when building large seasonal itineraries, as every lookup goes straight to the precompiled table.
+    * */
+    public List<Activity> initialiseActivities(Collection<String> referenceNumbers) {
+        List<Activity> activities = new ArrayList<>(referenceNumbers.size());
+        try
+        {
+            for (String referenceNumber : referenceNumbers) {
+                activities.add(this.createActivity(referenceNumber));
+            }
+        }
+        catch (IllegalArgumentException e)
+        {
+            err.println("Failed to create activity: " + e.getMessage()); // Only for debugging, can stay due to application having GUI
+            throw new RuntimeException(e);
+        }
+        return activities;
+    }
+
+    private static ActivityType typeOfClass(Class<? extends Activity> theClass) {
+        for (ActivityType activityType : ACTIVITY_TYPES) {
+            if (activityType.type() == theClass) return activityType;
+        }
+        return null;
+    }
+
+    // Matches the part of the reference before the first '_' without splitting or copying the string.
+    private static ActivityType typeOfReference(String referenceNumber) {
+        for (ActivityType activityType : ACTIVITY_TYPES) {
+            String classReference = activityType.classReference();
+            int length = classReference.length();
+            if (referenceNumber.startsWith(classReference)
+                    && (referenceNumber.length() == length || referenceNumber.charAt(length) == '_')) {
+                return activityType;
+            }
+        }
+        return null;
+    }
 }
@@ -22,9 +22,18 @@ public record ActivityMetadata
             int baseCostInPence,
             int durationInMinutes,
             boolean isInsuranceMandatory,
-            ArrayList<AddOn> activityAddons
+            ArrayList<AddOn> activityAddons,
+            int capacity // Seats available, UNLIMITED_CAPACITY if there is no limit
         )
 {
+    public static final int UNLIMITED_CAPACITY = Integer.MAX_VALUE;
+
+    // For activities without a seat limit
+    public ActivityMetadata(String referenceNumber, String readableName, String description, Location location, LocalDateTime dateAndTime,
+                            int baseCostInPence, int durationInMinutes, boolean isInsuranceMandatory, ArrayList<AddOn> activityAddons) {
+        this(referenceNumber, readableName, description, location, dateAndTime, baseCostInPence, durationInMinutes, isInsuranceMandatory, activityAddons, UNLIMITED_CAPACITY);
+    }
+
     public ActivityMetadata {
         if (durationInMinutes < 0) {
             throw new IllegalArgumentException("Duration cannot be negative");
@@ -35,6 +44,9 @@ public record ActivityMetadata
         if (referenceNumber == null || referenceNumber.isBlank()) {
             throw new IllegalArgumentException("Reference number cannot be null or empty");
         }
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative");
+        }
         if  (activityAddons.size() > AddOn.MAX_ADDONS) {
             throw new IllegalArgumentException("Maximum number of addons reached");
         }
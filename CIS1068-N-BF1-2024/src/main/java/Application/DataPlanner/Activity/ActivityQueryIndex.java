@@ -0,0 +1,328 @@
+package Application.DataPlanner.Activity;
+
+import Application.DataPlanner.Activity.ActivityAddons.AddOn;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static Application.DataPlanner.Activity.Activity.Location;
+
+/*
+* Answers combined filters over the catalogue (location, insurance, type code, addons, cost and duration) without scanning it.
+* Every activity gets a row number, and each low-cardinality attribute value keeps a bitmap of the rows that have it,
+* so a query is a handful of bitwise ANDs followed by a walk over the rows that matched.
+* Cost and duration are kept as sorted primitive columns searched by binary search. A range either walks the part of the column
+* inside it or, when the other filters have already narrowed the rows down further, just checks the value of each remaining row.
+* The ActivityRegistry keeps the index up to date in batches of changes. Many threads can query at once; applying a batch briefly blocks queries.
+* */
+public class ActivityQueryIndex {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final ArrayList<ActivityMetadata> rows = new ArrayList<>(); // Indexed by row number, null when the row is free
+    private final Map<String, Integer> rowByReference = new HashMap<>();
+    private int[] freeRows = new int[16]; // Rows of removed activities, reused before the table grows
+    private int freeRowCount = 0;
+
+    private final BitSet liveRows = new BitSet();
+    private final BitSet[] rowsByLocation = new BitSet[Location.values().length];
+    private final BitSet insuranceMandatoryRows = new BitSet();
+    private final Map<String, BitSet> rowsByType = new HashMap<>();
+    private final BitSet[] rowsByAddon = new BitSet[AddOn.MAX_ADDONS]; // Indexed by AddOn.getIndex()
+    private final SortedColumn costColumn = new SortedColumn();
+    private final SortedColumn durationColumn = new SortedColumn();
+
+    ActivityQueryIndex() {
+        for (int i = 0; i < rowsByLocation.length; i++) rowsByLocation[i] = new BitSet();
+        for (int i = 0; i < rowsByAddon.length; i++) rowsByAddon[i] = new BitSet();
+    }
+
+    // Applies changes in the order given, taking the write lock once for all of them
+    void apply(List<ActivityChange> changes) {
+        lock.writeLock().lock();
+        try {
+            for (ActivityChange change : changes) {
+                if (change.previous() != null) remove(change.previous());
+                if (change.current() != null) add(change.current());
+            }
+            costColumn.flush();
+            durationColumn.flush();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Must be called while holding the write lock
+    private void add(ActivityMetadata activityMetadata) {
+        int row = freeRowCount > 0 ? freeRows[--freeRowCount] : rows.size();
+        if (row == rows.size()) rows.add(activityMetadata);
+        else rows.set(row, activityMetadata);
+        rowByReference.put(activityMetadata.referenceNumber(), row);
+
+        liveRows.set(row);
+        if (activityMetadata.location() != null) rowsByLocation[activityMetadata.location().ordinal()].set(row);
+        if (activityMetadata.isInsuranceMandatory()) insuranceMandatoryRows.set(row);
+        rowsByType.computeIfAbsent(ActivityRegistry.typeCodeOf(activityMetadata.referenceNumber()), type -> new BitSet()).set(row);
+        for (AddOn addon : activityMetadata.activityAddons()) rowsByAddon[addon.getIndex()].set(row);
+        costColumn.add(row, activityMetadata.baseCostInPence());
+        durationColumn.add(row, activityMetadata.durationInMinutes());
+    }
+
+    // Must be called while holding the write lock
+    private void remove(ActivityMetadata activityMetadata) {
+        Integer row = rowByReference.remove(activityMetadata.referenceNumber());
+        if (row == null) return;
+
+        liveRows.clear(row);
+        for (BitSet rowsWithLocation : rowsByLocation) rowsWithLocation.clear(row);
+        insuranceMandatoryRows.clear(row);
+        BitSet rowsWithType = rowsByType.get(ActivityRegistry.typeCodeOf(activityMetadata.referenceNumber()));
+        if (rowsWithType != null) rowsWithType.clear(row);
+        for (BitSet rowsWithAddon : rowsByAddon) rowsWithAddon.clear(row);
+        costColumn.remove();
+        durationColumn.remove();
+
+        rows.set(row, null);
+        if (freeRowCount == freeRows.length) freeRows = Arrays.copyOf(freeRows, freeRowCount * 2);
+        freeRows[freeRowCount++] = row;
+    }
+
+    // Starts a new query that matches every activity until filters are added
+    public Query query() {
+        return new Query();
+    }
+
+    private static long columnEntry(int value, int row) {
+        return (long) value << 32 | (row & 0xFFFFFFFFL);
+    }
+
+    /*
+    * One int attribute of every row, both by row (valueByRow) and in value order (entries of value << 32 | row, so equal
+    * values stay distinct). New entries are appended to a small buffer, which flush() sorts once per batch of changes and
+    * merges into the main array once it reaches about the square root of the main array's size, so an insert moves
+    * O(sqrt n) entries rather than the whole column. Removing a row leaves its entry behind; an entry only counts while
+    * its row is live and still has that value, and stale entries are dropped on the next merge.
+    * All methods must be called while holding the index's lock, and flush() before the lock is released.
+    * */
+    private final class SortedColumn {
+        private int[] valueByRow = new int[16];
+        private long[] sorted = new long[16];
+        private int sortedSize = 0;
+        private long[] pending = new long[64];
+        private int pendingSize = 0;
+        private int pendingSorted = 0; // Entries before this are sorted, the rest were added since the last flush()
+        private int staleEntries = 0;
+
+        void add(int row, int value) {
+            if (row >= valueByRow.length) valueByRow = Arrays.copyOf(valueByRow, Math.max(row + 1, valueByRow.length * 2));
+            valueByRow[row] = value;
+            if (pendingSize == pending.length) pending = Arrays.copyOf(pending, pendingSize * 2);
+            pending[pendingSize++] = columnEntry(value, row);
+        }
+
+        // The row's entry stays until the next merge, see isLive
+        void remove() {
+            staleEntries++;
+        }
+
+        // Sorts the entries added since the last flush into the buffer, then merges or compacts if it is time to
+        void flush() {
+            if (pendingSorted < pendingSize) {
+                Arrays.sort(pending, pendingSorted, pendingSize);
+                long[] added = Arrays.copyOfRange(pending, pendingSorted, pendingSize);
+                // Fill from the back, as merge() does
+                int i = pendingSorted - 1, j = added.length - 1, k = pendingSize - 1;
+                while (j >= 0) {
+                    pending[k--] = i >= 0 && pending[i] > added[j] ? pending[i--] : added[j--];
+                }
+                pendingSorted = pendingSize;
+            }
+            // Once half the column is stale it is compacted
+            if (pendingSize > Math.max(64, (int) Math.sqrt(sortedSize)) || staleEntries > Math.max(64, sortedSize / 2)) merge();
+        }
+
+        private boolean isLive(long entry) {
+            int row = (int) entry;
+            return liveRows.get(row) && valueByRow[row] == (int) (entry >> 32);
+        }
+
+        // Merges the buffer into the main array, dropping stale and duplicate entries
+        private void merge() {
+            int capacity = sortedSize + pendingSize;
+            long[] merged = sorted.length < capacity ? new long[capacity + capacity / 2] : sorted;
+            int size = capacity;
+            // Fill from the back, so merging in place never overwrites an entry not yet read
+            int i = sortedSize - 1, j = pendingSize - 1, k = capacity - 1;
+            while (j >= 0) {
+                merged[k--] = i >= 0 && sorted[i] > pending[j] ? sorted[i--] : pending[j--];
+            }
+            if (merged != sorted) System.arraycopy(sorted, 0, merged, 0, i + 1);
+            int kept = 0;
+            for (int n = 0; n < size; n++) {
+                long entry = merged[n];
+                if ((kept == 0 || merged[kept - 1] != entry) && isLive(entry)) merged[kept++] = entry;
+            }
+            sorted = merged;
+            sortedSize = kept;
+            pendingSize = 0;
+            pendingSorted = 0;
+            staleEntries = 0;
+        }
+
+        /*
+        * Narrows 'candidates' down to the rows whose value is between min and max, both inclusive.
+        * If fewer rows are left than the range holds, each row's value is checked directly instead of walking the range.
+        * */
+        void retainRange(BitSet candidates, int min, int max) {
+            long low = columnEntry(min, 0);
+            long high = columnEntry(max, 0) | 0xFFFFFFFFL;
+            int sortedFrom = lowerBound(sorted, sortedSize, low), sortedTo = upperBound(sorted, sortedSize, high);
+            int pendingFrom = lowerBound(pending, pendingSize, low), pendingTo = upperBound(pending, pendingSize, high);
+
+            if (candidates.cardinality() <= (sortedTo - sortedFrom) + (pendingTo - pendingFrom)) {
+                for (int row = candidates.nextSetBit(0); row >= 0; row = candidates.nextSetBit(row + 1)) {
+                    int value = valueByRow[row];
+                    if (value < min || value > max) candidates.clear(row);
+                }
+                return;
+            }
+            BitSet inRange = new BitSet();
+            for (int n = sortedFrom; n < sortedTo; n++) if (isLive(sorted[n])) inRange.set((int) sorted[n]);
+            for (int n = pendingFrom; n < pendingTo; n++) if (isLive(pending[n])) inRange.set((int) pending[n]);
+            candidates.and(inRange);
+        }
+
+        private static int lowerBound(long[] entries, int size, long key) {
+            int index = Arrays.binarySearch(entries, 0, size, key);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        private static int upperBound(long[] entries, int size, long key) {
+            int index = Arrays.binarySearch(entries, 0, size, key);
+            return index >= 0 ? index + 1 : -index - 1;
+        }
+    }
+
+    /*
+    * A set of filters that must all match. Filters on the same attribute given several values match any of them,
+    * e.g. location(Location.HOME, Location.ONLINE). A Query is not thread-safe, but can be run again after the registry changes.
+    * */
+    public final class Query {
+        private Location[] locations;
+        private Boolean insuranceMandatory;
+        private String[] types;
+        private final List<AddOn> requiredAddons = new ArrayList<>();
+        private final List<AddOn> excludedAddons = new ArrayList<>();
+        private int minCost = Integer.MIN_VALUE, maxCost = Integer.MAX_VALUE;
+        private int minDuration = Integer.MIN_VALUE, maxDuration = Integer.MAX_VALUE;
+
+        private Query() {
+        }
+
+        public Query location(Location... locations) {
+            this.locations = locations.clone();
+            return this;
+        }
+
+        public Query insuranceMandatory(boolean insuranceMandatory) {
+            this.insuranceMandatory = insuranceMandatory;
+            return this;
+        }
+
+        // Type codes such as SASCourseActivity.classReference
+        public Query type(String... types) {
+            this.types = types.clone();
+            return this;
+        }
+
+        public Query withAddon(AddOn addon) {
+            requiredAddons.add(addon);
+            return this;
+        }
+
+        public Query withoutAddon(AddOn addon) {
+            excludedAddons.add(addon);
+            return this;
+        }
+
+        // Base cost in pence, both ends inclusive
+        public Query costBetween(int minCostInPence, int maxCostInPence) {
+            if (maxCostInPence < minCostInPence) {
+                throw new IllegalArgumentException("Maximum cost " + maxCostInPence + " is below the minimum " + minCostInPence);
+            }
+            this.minCost = minCostInPence;
+            this.maxCost = maxCostInPence;
+            return this;
+        }
+
+        // Duration in minutes, both ends inclusive
+        public Query durationBetween(int minMinutes, int maxMinutes) {
+            if (maxMinutes < minMinutes) {
+                throw new IllegalArgumentException("Maximum duration " + maxMinutes + " is below the minimum " + minMinutes);
+            }
+            this.minDuration = minMinutes;
+            this.maxDuration = maxMinutes;
+            return this;
+        }
+
+        public List<ActivityMetadata> list() {
+            lock.readLock().lock();
+            try {
+                BitSet matches = evaluate();
+                List<ActivityMetadata> results = new ArrayList<>(matches.cardinality());
+                for (int row = matches.nextSetBit(0); row >= 0; row = matches.nextSetBit(row + 1)) {
+                    results.add(rows.get(row));
+                }
+                return results;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        public int count() {
+            lock.readLock().lock();
+            try {
+                return evaluate().cardinality();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        // Must be called while holding the read lock
+        private BitSet evaluate() {
+            BitSet matches = (BitSet) liveRows.clone();
+            if (locations != null) {
+                BitSet anyLocation = new BitSet();
+                for (Location location : locations) anyLocation.or(rowsByLocation[location.ordinal()]);
+                matches.and(anyLocation);
+            }
+            if (insuranceMandatory != null) {
+                if (insuranceMandatory) matches.and(insuranceMandatoryRows);
+                else matches.andNot(insuranceMandatoryRows);
+            }
+            if (types != null) {
+                BitSet anyType = new BitSet();
+                for (String type : types) {
+                    BitSet rowsWithType = rowsByType.get(type);
+                    if (rowsWithType != null) anyType.or(rowsWithType);
+                }
+                matches.and(anyType);
+            }
+            for (AddOn addon : requiredAddons) matches.and(rowsByAddon[addon.getIndex()]);
+            for (AddOn addon : excludedAddons) matches.andNot(rowsByAddon[addon.getIndex()]);
+            // Ranges last, so they only have to look at the rows the bitmaps left
+            if (!matches.isEmpty() && (minCost != Integer.MIN_VALUE || maxCost != Integer.MAX_VALUE)) {
+                costColumn.retainRange(matches, minCost, maxCost);
+            }
+            if (!matches.isEmpty() && (minDuration != Integer.MIN_VALUE || maxDuration != Integer.MAX_VALUE)) {
+                durationColumn.retainRange(matches, minDuration, maxDuration);
+            }
+            return matches;
+        }
+    }
+}
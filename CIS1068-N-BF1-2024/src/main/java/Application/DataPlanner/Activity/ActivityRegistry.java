@@ -4,58 +4,243 @@ package Application.DataPlanner.Activity;
 * It uses ActivityMetadata Record Class to store all information
 * */
 
+import Utils.Collections.PersistentHashMap;
 import Utils.Randomiser.GenerateReferenceNumber;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /*
-* This class creates a register of all activities to easily access them, it bounds unique ID with each activity.*/
+* This class creates a register of all activities to easily access them, it bounds unique ID with each activity.
+* Each registry keeps its own references and is safe to fill from many threads at once: reads never lock,
+* and reserving an individual reference is a single atomic add, so two threads can never both get the same one.
+*
+* A change only holds the map's lock for its own reference number while it updates the map and the current version.
+* The type, time, query and text indexes are then brought up to date from the change feed, in sequence order, by whichever
+* writer gets indexLock, for every change published so far. Writers that find the lock taken return straight away and
+* leave their change to the holder, so the index locks are taken once per batch and no writer waits for another.
+* With one writer every change is indexed before addActivity() or removeActivity() returns; with several, a change may
+* still be on its way into the indexes, and awaitIndexed() waits for it. getMetadataMap() and snapshot() never lag.
+* */
 public class ActivityRegistry {
 
+    /*
+    * The registry as it was at one moment. Nothing about it ever changes, so reports can iterate it for as long as they like,
+    * without locks, while imports carry on. The sequence is that of the last change in it on the change feed, so following
+    * the feed from sequence() + 1 carries on exactly where the version stops.
+    * A version is garbage collected once nothing refers to it; it shares almost all its memory with the versions around it.
+    * */
+    public record Version(long sequence, PersistentHashMap<String, ActivityMetadata> activities) {
+        Version with(ActivityMetadata activityMetadata) {
+            return new Version(sequence + 1, activities.plus(activityMetadata.referenceNumber(), activityMetadata));
+        }
+
+        Version without(String referenceNumber) {
+            return new Version(sequence + 1, activities.minus(referenceNumber));
+        }
+    }
+
     private final Map<String, ActivityMetadata> metadataMap;
-    private static ArrayList<String> individualReferenceList;
-    static AtomicInteger activityCounter = new AtomicInteger(0);
+    private final Map<String, ActivityMetadata> metadataView; // Read-only, so nothing can change the map behind the registry's back
+    private final Set<String> individualReferences;
+    // Activities grouped by their type code (the classReference before '_', e.g. "SAS-00"), updated from the change feed like the other indexes
+    private final Map<String, Map<String, ActivityMetadata>> typeIndex;
+    private final ActivityTimeIndex timeIndex; // Activities in date and time order
+    private final ActivityQueryIndex queryIndex; // Bitmaps for combined filters, see query()
+    private final ActivityTextIndex textIndex; // Words in names and descriptions
+    private final ActivityChangeFeed changeFeed; // Every insert, update and removal, in order
+    private final AtomicReference<Version> currentVersion; // Swapped with compare-and-set, see snapshot()
+    private final ReentrantLock indexLock = new ReentrantLock(); // Held while applying changes to the indexes
+    private final Condition changesIndexed = indexLock.newCondition(); // Signalled each time indexedSequence moves on
+    private volatile long indexedSequence = 0; // Every change up to here is in the indexes. Only written while holding indexLock
+
+    // Writers only wait for the indexes if they fall this far behind, so the changes they need are always still in the feed's ring
+    private static final int MAX_UNINDEXED_CHANGES = ActivityChangeFeed.DEFAULT_RETAINED_CHANGES / 2;
+    private static final int BULK_BATCH_SIZE = MAX_UNINDEXED_CHANGES / 2; // See addActivities()
 
     public ActivityRegistry() {
-        metadataMap = new HashMap<>();
-        individualReferenceList = new ArrayList<>();
+        metadataMap = new ConcurrentHashMap<>();
+        metadataView = Collections.unmodifiableMap(metadataMap);
+        individualReferences = ConcurrentHashMap.newKeySet();
+        typeIndex = new ConcurrentHashMap<>();
+        timeIndex = new ActivityTimeIndex();
+        queryIndex = new ActivityQueryIndex();
+        textIndex = new ActivityTextIndex();
+        changeFeed = new ActivityChangeFeed();
+        currentVersion = new AtomicReference<>(new Version(0, PersistentHashMap.empty()));
         /*
         * There is a space if you want to read activities from file or database, you can add them here
         * */
     }
 
     public Map<String, ActivityMetadata> getMetadataMap() {
-        return this.metadataMap;
+        return this.metadataView;
+    }
+
+    /* A consistent, read-only copy of every activity as of now, e.g. for a long report while imports are running.
+    * Taking one is a single read, nothing is copied. Unlike getMetadataMap(), it never shows changes made after it was taken.
+    * To keep a copy up to date, start from the snapshot and subscribe to the change feed from snapshot().sequence() + 1. */
+    public Version snapshot() {
+        return currentVersion.get();
     }
 
     public void addActivity(ActivityMetadata activityMetadata) {
-        metadataMap.put(activityMetadata.referenceNumber(), activityMetadata);
-        System.out.println("DEBUG Activity [" + activityCounter.incrementAndGet() + "]: " + activityMetadata.referenceNumber() + " " + metadataMap.get(activityMetadata.referenceNumber()).readableName());
+        ActivityChange change = put(activityMetadata);
+        changeFeed.publish(change);
+        catchUpIndexes(change);
+    }
+
+    /* Adds many activities at once, e.g. from an ActivitySnapshot. The same as calling addActivity() for each, except that
+    * the indexes take them a batch at a time, so the query index sorts and merges its columns once per batch, not once per activity. */
+    public void addActivities(Collection<ActivityMetadata> activities) {
+        ActivityChange change = null;
+        int unindexed = 0;
+        for (ActivityMetadata activityMetadata : activities) {
+            change = put(activityMetadata);
+            changeFeed.publish(change);
+            if (++unindexed == BULK_BATCH_SIZE) {
+                catchUpIndexes(change);
+                unindexed = 0;
+            }
+        }
+        if (change != null) catchUpIndexes(change);
+    }
+
+    // Puts the activity in the map and the current version, and returns the change to publish
+    private ActivityChange put(ActivityMetadata activityMetadata) {
+        // Checked here so that a bad activity fails on the thread adding it, not on whichever thread indexes it
+        if (activityMetadata.activityAddons().contains(null)) {
+            throw new IllegalArgumentException("Activity " + activityMetadata.referenceNumber() + " has a null addon");
+        }
+        ActivityChange[] change = new ActivityChange[1];
+        // compute() holds the lock for this one reference, so changes to it are numbered in the order they are made
+        metadataMap.compute(activityMetadata.referenceNumber(), (referenceNumber, previous) -> {
+            // The change gets its sequence in the same step that puts it in the current version
+            long sequence = currentVersion.updateAndGet(version -> version.with(activityMetadata)).sequence();
+            change[0] = new ActivityChange(sequence, previous == null ? ActivityChange.Kind.INSERT : ActivityChange.Kind.UPDATE, previous, activityMetadata);
+            return activityMetadata;
+        });
+        return change[0];
+    }
+
+    // Returns the removed activity, or null if there was no activity with this reference number
+    public ActivityMetadata removeActivity(String referenceNumber) {
+        ActivityChange[] change = new ActivityChange[1];
+        metadataMap.computeIfPresent(referenceNumber, (reference, previous) -> {
+            long sequence = currentVersion.updateAndGet(version -> version.without(reference)).sequence();
+            change[0] = new ActivityChange(sequence, ActivityChange.Kind.REMOVE, previous, null);
+            return null;
+        });
+        if (change[0] == null) return null;
+        changeFeed.publish(change[0]);
+        catchUpIndexes(change[0]);
+        return change[0].previous();
+    }
+
+    // Called after publishing a change
+    private void catchUpIndexes(ActivityChange change) {
+        indexPublishedChanges();
+        // Only if a writer has stalled before publishing, or the indexes cannot keep up, does this ever wait
+        long oldestAllowed = change.sequence() - MAX_UNINDEXED_CHANGES;
+        if (indexedSequence < oldestAllowed) awaitIndexed(oldestAllowed);
+    }
+
+    // Number of the last change that is in every index; see snapshot().sequence() for the last change made
+    public long getIndexedSequence() {
+        return indexedSequence;
+    }
+
+    // Waits until every change made so far is in the type, time, query and text indexes
+    public void awaitIndexed() {
+        awaitIndexed(currentVersion.get().sequence());
+    }
+
+    // Waits until the change with this sequence number, and every one before it, is in the indexes
+    public void awaitIndexed(long sequence) {
+        if (indexedSequence >= sequence) return;
+        indexLock.lock();
+        try {
+            while (true) {
+                indexPublishedChangesLocked();
+                if (indexedSequence >= sequence) return;
+                changesIndexed.awaitUninterruptibly(); // Until a writer publishes the missing change and indexes it
+            }
+        } finally {
+            indexLock.unlock();
+            indexPublishedChanges(); // Writers that found the lock taken left their changes to this thread
+        }
+    }
+
+    /*
+    * Whoever gets indexLock indexes every change published so far; the others return and leave their change to it.
+    * The holder looks again after unlocking, so a change published while it held the lock is never left behind.
+    * */
+    private void indexPublishedChanges() {
+        while (indexedSequence < changeFeed.getLatestSequence() && indexLock.tryLock()) {
+            try {
+                indexPublishedChangesLocked();
+            } finally {
+                indexLock.unlock();
+            }
+        }
+    }
+
+    // Must be called while holding indexLock
+    private void indexPublishedChangesLocked() {
+        long latest = changeFeed.getLatestSequence();
+        if (latest <= indexedSequence) return;
+        List<ActivityChange> changes = new ArrayList<>((int) (latest - indexedSequence));
+        for (long sequence = indexedSequence + 1; sequence <= latest; sequence++) {
+            ActivityChange change = changeFeed.getChange(sequence);
+            if (change == null) throw new IllegalStateException("Change " + sequence + " left the change feed before it was indexed");
+            changes.add(change);
+        }
+        // addActivity() has already checked everything the indexes read, so indexing a change cannot fail because of what is in it
+        for (ActivityChange change : changes) {
+            if (change.previous() != null) unindex(change.previous());
+            if (change.current() != null) index(change.current());
+        }
+        queryIndex.apply(changes);
+        textIndex.apply(changes);
+        indexedSequence = latest;
+        changesIndexed.signalAll();
     }
 
     public String generateIndividualReference(String individualReference, String ActivityReferenceCode) {
-        // Adds each individual reference to the list, so it can keep track of all individual references and make sure these stay unique
-        if (individualReferenceList.contains(individualReference)) {
+        // Reserves each individual reference, so it can keep track of all individual references and make sure these stay unique.
+        // add() checks and inserts in one atomic step, so concurrent callers cannot both reserve the same reference.
+        if (!individualReferences.add(individualReference)) {
             throw new IllegalArgumentException("Individual reference already exists " + individualReference + " please provide a unique reference for " + ActivityReferenceCode + " activity");
-        } else {
-            individualReferenceList.add(individualReference);
-            return uniqueReferenceGeneratorAndIdentifier(individualReference, ActivityReferenceCode);
         }
+        return uniqueReferenceGeneratorAndIdentifier(individualReference, ActivityReferenceCode);
     }
 
-    public static void flushIndividualReferenceList() {
-        individualReferenceList.clear();
+    public void flushIndividualReferenceList() {
+        individualReferences.clear();
     }
-    public static ArrayList<String> getIndividualReferenceList() {return individualReferenceList;}
-    public static AtomicInteger getActivityCounter() {return activityCounter;}
-    public static int getTotalActivities() {return activityCounter.get();}
-    public static void flushAtomicInteger() {activityCounter.set(0);}
+    public Set<String> getIndividualReferenceList() {return Collections.unmodifiableSet(individualReferences);}
+    public int getTotalActivities() {return metadataMap.size();}
 
-    /* This function takes an argument of activity type such as SASCourse etc. and then lists all available activities of this kind in the map.*/
+    /* This function takes an argument of activity type such as SASCourse etc. and then lists all available activities of this kind in the map.
+    * Given a full type code, such as SASCourseActivity.classReference, it returns a read-only live view straight from the type index.
+    * Anything else, e.g. "SAS", falls back to matching every reference number that contains it. */
     public Map<String, ActivityMetadata> listAllActivitiesOfAKind(String ActivityReferenceCode) {
+        Map<String, ActivityMetadata> activitiesOfType = typeIndex.get(ActivityReferenceCode);
+        if (activitiesOfType != null) {
+            return Collections.unmodifiableMap(activitiesOfType);
+        }
+
         Map<String, ActivityMetadata> activitiesOfAKind = new HashMap<>();
 
         for (Map.Entry<String, ActivityMetadata> entry : metadataMap.entrySet()) {
@@ -63,7 +248,70 @@ public class ActivityRegistry {
                 activitiesOfAKind.put(entry.getKey(), entry.getValue());
             }
         }
-        return activitiesOfAKind;
+        return Collections.unmodifiableMap(activitiesOfAKind);
+    }
+
+    public ActivityTimeIndex getTimeIndex() {
+        return timeIndex;
+    }
+
+    /* Starts a combined filter over this registry, e.g.
+    * registry.query().location(Location.ONLINE).insuranceMandatory(false).costBetween(0, 100_00).list() */
+    public ActivityQueryIndex.Query query() {
+        return queryIndex.query();
+    }
+
+    public ActivityTextIndex getTextIndex() {
+        return textIndex;
+    }
+
+    /* Subscribe to follow changes to this registry instead of re-scanning getMetadataMap(), e.g.
+    * registry.getChangeFeed().subscribe(subscriber, lastSequenceSeen + 1) to carry on after a restart */
+    public ActivityChangeFeed getChangeFeed() {
+        return changeFeed;
+    }
+
+    /* Rebuilds the text index from scratch in parallel, e.g. after a bulk import. Safe while other threads add and remove:
+    * it rebuilds from what the index holds as of indexedSequence, not from the live map, so the changes after that apply on top. */
+    public void rebuildTextIndex() {
+        indexLock.lock();
+        try {
+            indexPublishedChangesLocked();
+            textIndex.rebuild();
+        } finally {
+            indexLock.unlock();
+        }
+        indexPublishedChanges(); // Writers that found the lock taken left their changes to this thread
+    }
+
+    // Writes a binary snapshot that ActivitySnapshot.open can map straight back in on the next start
+    public void writeSnapshot(Path file) throws IOException {
+        ActivitySnapshot.write(this, file);
+    }
+
+    // Type codes that have ever had an activity in this registry
+    public Set<String> getActivityTypes() {
+        return Collections.unmodifiableSet(typeIndex.keySet());
+    }
+
+    // The part of the reference number before the first '_', e.g. "SAS-00" for "SAS-00_SAS01"
+    public static String typeCodeOf(String referenceNumber) {
+        int separator = referenceNumber.indexOf('_');
+        return separator < 0 ? referenceNumber : referenceNumber.substring(0, separator);
+    }
+
+    // Type and time index only; the query and text indexes take whole batches. Called while holding indexLock.
+    // Per-type maps are never removed, so views handed out earlier stay live.
+    private void index(ActivityMetadata activityMetadata) {
+        typeIndex.computeIfAbsent(typeCodeOf(activityMetadata.referenceNumber()), type -> new ConcurrentHashMap<>())
+                .put(activityMetadata.referenceNumber(), activityMetadata);
+        timeIndex.add(activityMetadata);
+    }
+
+    private void unindex(ActivityMetadata activityMetadata) {
+        Map<String, ActivityMetadata> activitiesOfType = typeIndex.get(typeCodeOf(activityMetadata.referenceNumber()));
+        if (activitiesOfType != null) activitiesOfType.remove(activityMetadata.referenceNumber());
+        timeIndex.remove(activityMetadata);
     }
 
     /*
@@ -0,0 +1,233 @@
+package Application.DataPlanner.Activity;
+
+import Application.DataPlanner.Activity.ActivityAddons.AddOn;
+import Application.DataPlanner.Activity.ActivityAddons.AddOnSet;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static Application.DataPlanner.Activity.Activity.Location;
+
+/*
+* A compact, read-only binary copy of a registry that can be opened straight from disk.
+* Opening only maps the file into memory, so even a snapshot of millions of activities can be searched with find() within
+* milliseconds; an ActivityMetadata is only built when one is asked for. Loading it into a registry with addAllTo() is slower,
+* as every activity is built and indexed, though the indexes take them in batches.
+*
+* File layout (big-endian):
+*   header   - magic, format version, record count, string count, offset of the string table, offset of the records
+*   strings  - an offset per string, then each string as its UTF-8 length and bytes
+*   records  - one fixed-width record per activity, sorted by the UTF-8 bytes of the reference number, holding
+*              string ids (reference number, name, description), location ordinal, insurance flag, addon mask,
+*              date and time as epoch second and nano (UTC), base cost, duration and capacity
+*
+* Snapshots are limited to 2 GB, the most a single mapped buffer can hold.
+* */
+public final class ActivitySnapshot {
+
+    private static final int MAGIC = 0x41435453; // "ACTS"
+    private static final int FORMAT_VERSION = 2; // 2 added capacity
+    private static final int HEADER_SIZE = 4 + 4 + 4 + 4 + 8 + 8;
+    private static final int RECORD_SIZE = 4 + 4 + 4 + 1 + 1 + 1 + 1 + 8 + 4 + 4 + 4 + 4;
+    private static final long NO_DATE_AND_TIME = Long.MIN_VALUE;
+    private static final Location[] LOCATIONS = Location.values();
+
+    private final ByteBuffer buffer;
+    private final int recordCount;
+    private final int stringCount;
+    private final int stringTableOffset;
+    private final int recordsOffset;
+    private final String[] decodedStrings; // Filled in as strings are first read
+
+    private ActivitySnapshot(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not an activity snapshot");
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported activity snapshot version " + buffer.getInt(4));
+        }
+        this.recordCount = buffer.getInt(8);
+        this.stringCount = buffer.getInt(12);
+        this.stringTableOffset = Math.toIntExact(buffer.getLong(16));
+        this.recordsOffset = Math.toIntExact(buffer.getLong(24));
+        this.decodedStrings = new String[stringCount];
+    }
+
+    // Writes every activity in the registry, as of one moment even while others are changing it, replacing the file if it exists
+    public static void write(ActivityRegistry registry, Path file) throws IOException {
+        List<ActivityMetadata> activities = new ArrayList<>(registry.snapshot().activities().values());
+        byte[][] sortKeys = new byte[activities.size()][];
+        Integer[] order = new Integer[activities.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+            sortKeys[i] = activities.get(i).referenceNumber().getBytes(StandardCharsets.UTF_8);
+        }
+        Arrays.sort(order, Comparator.comparing(i -> sortKeys[i], Arrays::compareUnsigned));
+
+        StringInterner strings = new StringInterner();
+        for (Integer i : order) {
+            ActivityMetadata activity = activities.get(i);
+            strings.intern(activity.referenceNumber());
+            strings.intern(activity.readableName());
+            strings.intern(activity.description());
+        }
+        byte[][] encodedStrings = new byte[strings.size()][];
+        long stringBytes = 0;
+        for (int id = 0; id < encodedStrings.length; id++) {
+            encodedStrings[id] = strings.get(id).getBytes(StandardCharsets.UTF_8);
+            stringBytes += 4 + encodedStrings[id].length;
+        }
+
+        long stringTableOffset = HEADER_SIZE;
+        long recordsOffset = stringTableOffset + 4L * encodedStrings.length + stringBytes;
+        long fileSize = recordsOffset + (long) RECORD_SIZE * activities.size();
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Registry is too large for a single snapshot: " + fileSize + " bytes");
+        }
+
+        ByteBuffer out = ByteBuffer.allocate((int) fileSize).order(ByteOrder.BIG_ENDIAN);
+        out.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(activities.size()).putInt(encodedStrings.length)
+                .putLong(stringTableOffset).putLong(recordsOffset);
+
+        int stringOffset = 0;
+        for (byte[] encoded : encodedStrings) {
+            out.putInt(stringOffset);
+            stringOffset += 4 + encoded.length;
+        }
+        for (byte[] encoded : encodedStrings) {
+            out.putInt(encoded.length).put(encoded);
+        }
+
+        for (Integer i : order) {
+            ActivityMetadata activity = activities.get(i);
+            int addonMask = 0;
+            for (AddOn addon : activity.activityAddons()) addonMask |= 1 << addon.getIndex();
+            out.putInt(strings.idOf(activity.referenceNumber()))
+                    .putInt(strings.idOf(activity.readableName()))
+                    .putInt(strings.idOf(activity.description()))
+                    .put((byte) (activity.location() == null ? -1 : activity.location().ordinal()))
+                    .put((byte) (activity.isInsuranceMandatory() ? 1 : 0))
+                    .put((byte) addonMask)
+                    .put((byte) 0); // Padding
+            if (activity.dateAndTime() == null) {
+                out.putLong(NO_DATE_AND_TIME).putInt(0);
+            } else {
+                out.putLong(activity.dateAndTime().toEpochSecond(ZoneOffset.UTC)).putInt(activity.dateAndTime().getNano());
+            }
+            out.putInt(activity.baseCostInPence()).putInt(activity.durationInMinutes()).putInt(activity.capacity());
+        }
+
+        out.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) channel.write(out);
+        }
+    }
+
+    // Maps the snapshot into memory. The mapping stays valid after the channel is closed
+    public static ActivitySnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Activity snapshot is larger than 2 GB: " + file);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new ActivitySnapshot(mapped);
+        }
+    }
+
+    public int size() {
+        return recordCount;
+    }
+
+    // Builds the activity at the given position, in reference number order
+    public ActivityMetadata get(int index) {
+        if (index < 0 || index >= recordCount) {
+            throw new IndexOutOfBoundsException("Activity " + index + " out of " + recordCount);
+        }
+        int record = recordsOffset + index * RECORD_SIZE;
+        byte location = buffer.get(record + 12);
+        long epochSecond = buffer.getLong(record + 16);
+        return new ActivityMetadata(
+                string(buffer.getInt(record)),
+                string(buffer.getInt(record + 4)),
+                string(buffer.getInt(record + 8)),
+                location < 0 ? null : LOCATIONS[location],
+                epochSecond == NO_DATE_AND_TIME ? null : LocalDateTime.ofEpochSecond(epochSecond, buffer.getInt(record + 24), ZoneOffset.UTC),
+                buffer.getInt(record + 28),
+                buffer.getInt(record + 32),
+                buffer.get(record + 13) != 0,
+                new ArrayList<>(AddOnSet.ofMask(buffer.get(record + 14)).toList()),
+                buffer.getInt(record + 36)
+        );
+    }
+
+    // Binary search on the reference number; returns null if the snapshot has no such activity
+    public ActivityMetadata find(String referenceNumber) {
+        int index = indexOf(referenceNumber);
+        return index < 0 ? null : get(index);
+    }
+
+    // Position of the activity, or -1. Compares raw UTF-8 bytes, so no strings are decoded during the search
+    public int indexOf(String referenceNumber) {
+        byte[] key = referenceNumber.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = recordCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compareString(buffer.getInt(recordsOffset + middle * RECORD_SIZE), key);
+            if (comparison < 0) low = middle + 1;
+            else if (comparison > 0) high = middle - 1;
+            else return middle;
+        }
+        return -1;
+    }
+
+    // Adds every activity in the snapshot to the registry, see ActivityRegistry.addActivities()
+    public void addAllTo(ActivityRegistry registry) {
+        List<ActivityMetadata> activities = new ArrayList<>(recordCount);
+        for (int i = 0; i < recordCount; i++) {
+            activities.add(get(i));
+        }
+        registry.addActivities(activities);
+    }
+
+    private String string(int id) {
+        if (id < 0) return null;
+        String decoded = decodedStrings[id];
+        if (decoded == null) {
+            int position = stringPosition(id);
+            byte[] bytes = new byte[buffer.getInt(position)];
+            buffer.get(position + 4, bytes);
+            decoded = new String(bytes, StandardCharsets.UTF_8);
+            decodedStrings[id] = decoded; // Strings are immutable, so a racing duplicate decode is harmless
+        }
+        return decoded;
+    }
+
+    private int stringPosition(int id) {
+        return stringTableOffset + 4 * stringCount + buffer.getInt(stringTableOffset + 4 * id);
+    }
+
+    private int compareString(int id, byte[] key) {
+        int position = stringPosition(id);
+        int length = buffer.getInt(position);
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int comparison = Integer.compare(buffer.get(position + 4 + i) & 0xFF, key[i] & 0xFF);
+            if (comparison != 0) return comparison;
+        }
+        return Integer.compare(length, key.length);
+    }
+}
@@ -0,0 +1,304 @@
+package Application.DataPlanner.Activity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+* Finds activities by the words in their readable name and description, e.g. "paper", "cooking" or "SAS".
+* Text is split into words of letters and digits and case-folded. Each word keeps a postings list: the sorted ids of
+* the activities containing it and how often it appears in each. Queries intersect or merge those lists instead of scanning
+* the catalogue, and results are ranked by tf-idf, so activities where a rare query word appears often come first.
+*
+* A query word ending in '*' matches every word starting with it, e.g. "cook*" matches "cook", "cooking" and "cookery".
+* The ActivityRegistry keeps the index up to date in batches of changes. Many threads can search at once; applying a batch briefly blocks searches.
+* */
+public class ActivityTextIndex {
+
+    // Sorted document ids with the number of times the word appears in each
+    private static final class Postings {
+        int[] documents = new int[4];
+        int[] frequencies = new int[4];
+        int size = 0;
+
+        // Ids of removed activities are reused, so a document can land anywhere; new ids still go on the end cheaply
+        void insert(int document, int frequency) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            int index = size == 0 || documents[size - 1] < document ? size : -Arrays.binarySearch(documents, 0, size, document) - 1;
+            System.arraycopy(documents, index, documents, index + 1, size - index);
+            System.arraycopy(frequencies, index, frequencies, index + 1, size - index);
+            documents[index] = document;
+            frequencies[index] = frequency;
+            size++;
+        }
+
+        void remove(int document) {
+            int index = Arrays.binarySearch(documents, 0, size, document);
+            if (index < 0) return;
+            System.arraycopy(documents, index + 1, documents, index, size - index - 1);
+            System.arraycopy(frequencies, index + 1, frequencies, index, size - index - 1);
+            size--;
+        }
+    }
+
+    // The documents one query word matched, with its frequency in each, sorted by document
+    private record Hits(int[] documents, int[] frequencies) {
+        int frequencyIn(int document) {
+            int index = Arrays.binarySearch(documents, document);
+            return index < 0 ? 0 : frequencies[index];
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private TreeMap<String, Postings> postingsByWord = new TreeMap<>(); // Sorted, so prefixes are a range
+    private ArrayList<ActivityMetadata> documents = new ArrayList<>(); // Indexed by id, null while the id is free
+    private Map<String, Integer> idByReference = new HashMap<>();
+    private int[] freeIds = new int[16]; // Ids of removed activities, reused before the table grows, as ActivityQueryIndex does with rows
+    private int freeIdCount = 0;
+
+    // Applies changes in the order given, taking the write lock once for all of them
+    void apply(List<ActivityChange> changes) {
+        // Tokenising is the slow part and needs no lock
+        List<Map<String, Integer>> wordCounts = new ArrayList<>(changes.size());
+        for (ActivityChange change : changes) wordCounts.add(change.current() == null ? null : wordCounts(change.current()));
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < changes.size(); i++) {
+                ActivityChange change = changes.get(i);
+                if (change.previous() != null) remove(change.previous());
+                if (change.current() != null) add(change.current(), wordCounts.get(i));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Must be called while holding the write lock
+    private void add(ActivityMetadata activityMetadata, Map<String, Integer> wordCounts) {
+        // Drop the reference's current id, if it has one, so it can never be indexed twice, e.g. by an insert
+        // applied after a rebuild that already included it. An update gets its old id straight back
+        remove(activityMetadata);
+        int id = freeIdCount > 0 ? freeIds[--freeIdCount] : documents.size();
+        if (id == documents.size()) documents.add(activityMetadata);
+        else documents.set(id, activityMetadata);
+        idByReference.put(activityMetadata.referenceNumber(), id);
+        wordCounts.forEach((word, count) -> postingsByWord.computeIfAbsent(word, w -> new Postings()).insert(id, count));
+    }
+
+    // Must be called while holding the write lock
+    private void remove(ActivityMetadata activityMetadata) {
+        Integer id = idByReference.remove(activityMetadata.referenceNumber());
+        if (id == null) return;
+        // Re-tokenise the stored copy, as that is what the postings were built from
+        for (String word : wordCounts(documents.get(id)).keySet()) {
+            Postings postings = postingsByWord.get(word);
+            postings.remove(id);
+            if (postings.size == 0) postingsByWord.remove(word);
+        }
+        documents.set(id, null);
+        if (freeIdCount == freeIds.length) freeIds = Arrays.copyOf(freeIds, freeIdCount * 2);
+        freeIds[freeIdCount++] = id;
+    }
+
+    // Rebuilds the index from the activities it already holds, compacting ids back to 0
+    void rebuild() {
+        List<ActivityMetadata> indexed;
+        lock.readLock().lock();
+        try {
+            indexed = documents.stream().filter(Objects::nonNull).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+        rebuild(indexed);
+    }
+
+    /*
+    * Replaces the whole index with the given activities, tokenising them in parallel.
+    * Ids are reassigned from 0 in the order given.
+    * */
+    public void rebuild(Collection<ActivityMetadata> activities) {
+        ActivityMetadata[] ordered = activities.toArray(new ActivityMetadata[0]);
+        List<Map<String, Integer>> wordCounts = Arrays.stream(ordered).parallel().map(ActivityTextIndex::wordCounts).toList();
+
+        TreeMap<String, Postings> newPostings = new TreeMap<>();
+        ArrayList<ActivityMetadata> newDocuments = new ArrayList<>(ordered.length);
+        Map<String, Integer> newIds = new HashMap<>(ordered.length * 2);
+        for (int id = 0; id < ordered.length; id++) {
+            int document = id;
+            newDocuments.add(ordered[id]);
+            newIds.put(ordered[id].referenceNumber(), id);
+            wordCounts.get(id).forEach((word, count) -> newPostings.computeIfAbsent(word, w -> new Postings()).insert(document, count));
+        }
+
+        lock.writeLock().lock();
+        try {
+            postingsByWord = newPostings;
+            documents = newDocuments;
+            idByReference = newIds;
+            freeIdCount = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Activities containing every word of the query, best match first
+    public List<ActivityMetadata> searchAll(String query) {
+        return search(query, true);
+    }
+
+    // Activities containing any word of the query, best match first
+    public List<ActivityMetadata> searchAny(String query) {
+        return search(query, false);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return idByReference.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<ActivityMetadata> search(String query, boolean matchAll) {
+        lock.readLock().lock();
+        try {
+            List<Hits> hitsPerWord = new ArrayList<>();
+            for (String word : query.trim().split("\\s+")) {
+                boolean prefix = word.endsWith("*");
+                List<String> tokens = tokenise(prefix ? word.substring(0, word.length() - 1) : word);
+                for (int i = 0; i < tokens.size(); i++) {
+                    // Only the last token of a word like "sas-00*" is a prefix
+                    hitsPerWord.add(prefix && i == tokens.size() - 1 ? prefixHits(tokens.get(i)) : wordHits(tokens.get(i)));
+                }
+            }
+            if (hitsPerWord.isEmpty()) return List.of();
+
+            int[] matches = hitsPerWord.get(0).documents();
+            for (int i = 1; i < hitsPerWord.size(); i++) {
+                matches = matchAll ? intersect(matches, hitsPerWord.get(i).documents()) : union(matches, hitsPerWord.get(i).documents());
+            }
+            return rank(matches, hitsPerWord);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Must be called while holding the read lock
+    private List<ActivityMetadata> rank(int[] matches, List<Hits> hitsPerWord) {
+        int total = Math.max(1, idByReference.size());
+        double[] inverseFrequencies = new double[hitsPerWord.size()];
+        for (int i = 0; i < inverseFrequencies.length; i++) {
+            inverseFrequencies[i] = Math.log(1.0 + (double) total / Math.max(1, hitsPerWord.get(i).documents().length));
+        }
+
+        double[] scores = new double[matches.length];
+        Integer[] order = new Integer[matches.length];
+        for (int m = 0; m < matches.length; m++) {
+            order[m] = m;
+            for (int i = 0; i < hitsPerWord.size(); i++) {
+                scores[m] += hitsPerWord.get(i).frequencyIn(matches[m]) * inverseFrequencies[i];
+            }
+        }
+        // Highest score first, ties by id so the order is stable
+        Arrays.sort(order, (a, b) -> scores[a] != scores[b] ? Double.compare(scores[b], scores[a]) : Integer.compare(matches[a], matches[b]));
+
+        List<ActivityMetadata> results = new ArrayList<>(matches.length);
+        for (int m : order) results.add(documents.get(matches[m]));
+        return results;
+    }
+
+    private Hits wordHits(String word) {
+        Postings postings = postingsByWord.get(word);
+        if (postings == null) return new Hits(new int[0], new int[0]);
+        return new Hits(Arrays.copyOf(postings.documents, postings.size), Arrays.copyOf(postings.frequencies, postings.size));
+    }
+
+    // Merges the postings of every word starting with the prefix, adding up frequencies per document
+    private Hits prefixHits(String prefix) {
+        NavigableMap<String, Postings> words = postingsByWord.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        int count = 0;
+        for (Postings postings : words.values()) count += postings.size;
+        long[] entries = new long[count]; // (document << 32 | frequency), so sorting groups each document together
+        int next = 0;
+        for (Postings postings : words.values()) {
+            for (int i = 0; i < postings.size; i++) entries[next++] = (long) postings.documents[i] << 32 | postings.frequencies[i];
+        }
+        Arrays.sort(entries);
+
+        int[] documentIds = new int[count];
+        int[] frequencies = new int[count];
+        int size = 0;
+        for (long entry : entries) {
+            int document = (int) (entry >>> 32);
+            if (size > 0 && documentIds[size - 1] == document) {
+                frequencies[size - 1] += (int) entry;
+            } else {
+                documentIds[size] = document;
+                frequencies[size++] = (int) entry;
+            }
+        }
+        return new Hits(Arrays.copyOf(documentIds, size), Arrays.copyOf(frequencies, size));
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int size = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else { result[size++] = a[i]; i++; j++; }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int size = 0;
+        int i = 0, j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) result[size++] = a[i++];
+            else if (a[i] > b[j]) result[size++] = b[j++];
+            else { result[size++] = a[i++]; j++; }
+        }
+        while (i < a.length) result[size++] = a[i++];
+        while (j < b.length) result[size++] = b[j++];
+        return Arrays.copyOf(result, size);
+    }
+
+    private static Map<String, Integer> wordCounts(ActivityMetadata activityMetadata) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String word : tokenise(activityMetadata.readableName())) counts.merge(word, 1, Integer::sum);
+        for (String word : tokenise(activityMetadata.description())) counts.merge(word, 1, Integer::sum);
+        return counts;
+    }
+
+    // Splits text into runs of letters and digits, lower-cased without depending on the default locale
+    static List<String> tokenise(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) return words;
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (Character.isLetterOrDigit(codePoint)) {
+                word.appendCodePoint(Character.toLowerCase(codePoint));
+            } else if (word.length() > 0) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        if (word.length() > 0) words.add(word.toString());
+        return words;
+    }
+}
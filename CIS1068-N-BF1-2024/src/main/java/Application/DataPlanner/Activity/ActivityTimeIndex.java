@@ -0,0 +1,104 @@
+package Application.DataPlanner.Activity;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/*
+* Keeps activities in date and time order so planners can ask for a window of time without scanning the whole registry.
+* Activities are ordered by their exact start time, then by reference number, so two activities starting at the same time
+* both stay in the index, and window ends are compared to the exact time rather than rounded to the minute. The ActivityRegistry keeps it up to date as activities are added or removed,
+* and it is safe to read while other threads are adding.
+* */
+public class ActivityTimeIndex {
+
+    private record TimeKey(LocalDateTime start, String referenceNumber) implements Comparable<TimeKey> {
+        @Override
+        public int compareTo(TimeKey other) {
+            int byTime = this.start.compareTo(other.start);
+            return byTime != 0 ? byTime : this.referenceNumber.compareTo(other.referenceNumber);
+        }
+    }
+
+    private final ConcurrentSkipListMap<TimeKey, ActivityMetadata> activitiesByTime = new ConcurrentSkipListMap<>();
+
+    // Activities without a date and time cannot be placed, so they are left out
+    void add(ActivityMetadata activityMetadata) {
+        if (activityMetadata.dateAndTime() == null) return;
+        activitiesByTime.put(keyOf(activityMetadata), activityMetadata);
+    }
+
+    void remove(ActivityMetadata activityMetadata) {
+        if (activityMetadata.dateAndTime() == null) return;
+        activitiesByTime.remove(keyOf(activityMetadata), activityMetadata);
+    }
+
+    public int size() {
+        return activitiesByTime.size();
+    }
+
+    // Activities starting from 'from' (inclusive) up to 'to' (exclusive), earliest first, as a read-only live view
+    public Collection<ActivityMetadata> between(LocalDateTime from, LocalDateTime to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("End of the window " + to + " is before its start " + from);
+        }
+        return Collections.unmodifiableCollection(activitiesByTime.subMap(lowestKeyAt(from), true, lowestKeyAt(to), false).values());
+    }
+
+    // All activities on the given day, earliest first
+    public Collection<ActivityMetadata> onDay(LocalDate day) {
+        return between(day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+    }
+
+    // Up to 'count' activities starting at or after 'time', earliest first
+    public List<ActivityMetadata> nextAfter(LocalDateTime time, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count cannot be negative");
+        }
+        List<ActivityMetadata> next = new ArrayList<>(Math.min(count, 64));
+        Iterator<ActivityMetadata> activities = activitiesByTime.tailMap(lowestKeyAt(time), true).values().iterator();
+        while (next.size() < count && activities.hasNext()) {
+            next.add(activities.next());
+        }
+        return next;
+    }
+
+    // Activities from 'from' to 'to' (both inclusive) grouped by day. Days without activities are left out
+    public NavigableMap<LocalDate, List<ActivityMetadata>> byDay(LocalDate from, LocalDate to) {
+        NavigableMap<LocalDate, List<ActivityMetadata>> days = new TreeMap<>();
+        for (ActivityMetadata activity : between(from.atStartOfDay(), to.plusDays(1).atStartOfDay())) {
+            days.computeIfAbsent(activity.dateAndTime().toLocalDate(), day -> new ArrayList<>()).add(activity);
+        }
+        return days;
+    }
+
+    // Activities in the weeks covering 'from' to 'to' grouped by week, keyed by the Monday each week starts on
+    public NavigableMap<LocalDate, List<ActivityMetadata>> byWeek(LocalDate from, LocalDate to) {
+        LocalDate firstMonday = from.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        LocalDate endOfLastWeek = to.with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+        NavigableMap<LocalDate, List<ActivityMetadata>> weeks = new TreeMap<>();
+        for (ActivityMetadata activity : between(firstMonday.atStartOfDay(), endOfLastWeek.atStartOfDay())) {
+            LocalDate monday = activity.dateAndTime().toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            weeks.computeIfAbsent(monday, week -> new ArrayList<>()).add(activity);
+        }
+        return weeks;
+    }
+
+    private static TimeKey keyOf(ActivityMetadata activityMetadata) {
+        return new TimeKey(activityMetadata.dateAndTime(), activityMetadata.referenceNumber());
+    }
+
+    // The empty reference number sorts before every real one, so this is the first possible key at that time
+    private static TimeKey lowestKeyAt(LocalDateTime time) {
+        return new TimeKey(time, "");
+    }
+}
@@ -15,7 +15,7 @@ public class BaseActivity extends Activity {
 
     @Override
     public int calculateFinalCostInPence() {
-        return super.getBaseCostInPence() + getFee().get().toPence() + addonsCost();
+        return Math.toIntExact(getFinalCostInPence());
     }
 
     public static final String classReference = "BAC-00";
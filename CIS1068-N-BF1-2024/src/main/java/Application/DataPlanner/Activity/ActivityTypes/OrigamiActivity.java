@@ -13,6 +13,6 @@ public class OrigamiActivity extends Activity {
 
     @Override
     public int calculateFinalCostInPence() {
-        return super.getBaseCostInPence() + getFee().get().toPence() + addonsCost();
+        return Math.toIntExact(getFinalCostInPence());
     }
 }
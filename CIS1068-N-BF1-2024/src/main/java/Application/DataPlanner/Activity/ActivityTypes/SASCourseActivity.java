@@ -17,7 +17,7 @@ public class SASCourseActivity extends Activity {
 
     @Override
     public int calculateFinalCostInPence() {
-        return super.getBaseCostInPence() + getFee().get().toPence() + addonsCost();
+        return Math.toIntExact(getFinalCostInPence());
     }
 
 }
@@ -0,0 +1,177 @@
+package Application.DataPlanner.Activity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+* Tracks the seats of each activity so that agents booking at the same time can never sell more seats than an activity has.
+* Booking is two steps: hold seats while the customer checks out, then confirm them, or release them if the sale falls through.
+* Confirmed seats can also be released later, e.g. on cancellation.
+*
+* Each activity's seats are one AtomicLong holding both the held and the confirmed count, updated with compare-and-set,
+* so no locks are taken and a check-and-reserve can never be split by another thread, however many agents book the same activity.
+* Whole itineraries are held all-or-nothing: if any activity is short of seats, the holds already taken are released.
+* */
+public class SeatInventory {
+
+    private static final int HELD = 0, CONFIRMED = 1, RELEASED = 2;
+
+    // Seats of one activity: held count in the high 32 bits, confirmed count in the low 32 bits
+    private static final class Seats {
+        final int capacity;
+        final AtomicLong state = new AtomicLong();
+
+        Seats(int capacity) {
+            this.capacity = capacity;
+        }
+
+        // Returns false, without changing anything, if fewer than 'seats' are free
+        boolean tryHold(int seats) {
+            while (true) {
+                long current = state.get();
+                long held = current >>> 32;
+                long confirmed = current & 0xFFFFFFFFL;
+                if (held + confirmed + seats > capacity) return false;
+                if (state.compareAndSet(current, current + ((long) seats << 32))) return true;
+                Thread.onSpinWait();
+            }
+        }
+
+        void add(long delta) {
+            state.getAndAdd(delta);
+        }
+
+        int held() { return (int) (state.get() >>> 32); }
+        int confirmed() { return (int) state.get(); }
+    }
+
+    /*
+    * Seats held or confirmed on one activity. Each reservation can be confirmed once and released once;
+    * the state change is atomic, so two agents acting on the same reservation cannot count it twice.
+    * */
+    public static final class Reservation {
+        private final String activityCode;
+        private final Seats activitySeats;
+        private final int seats;
+        private final AtomicInteger status = new AtomicInteger(HELD);
+
+        private Reservation(String activityCode, Seats activitySeats, int seats) {
+            this.activityCode = activityCode;
+            this.activitySeats = activitySeats;
+            this.seats = seats;
+        }
+
+        public String getActivityCode() { return activityCode; }
+        public int getSeats() { return seats; }
+        public boolean isConfirmed() { return status.get() == CONFIRMED; }
+        public boolean isReleased() { return status.get() == RELEASED; }
+
+        // Turns held seats into sold seats
+        public void confirm() {
+            if (!status.compareAndSet(HELD, CONFIRMED)) {
+                throw new IllegalStateException("Reservation for " + activityCode + " is already " + (isConfirmed() ? "confirmed" : "released"));
+            }
+            // One atomic step, so the seats are never briefly counted as free
+            activitySeats.add(-((long) seats << 32) + seats);
+        }
+
+        // Gives the seats back, whether they were held or confirmed. Releasing twice does nothing
+        public void release() {
+            if (status.compareAndSet(HELD, RELEASED)) {
+                activitySeats.add(-((long) seats << 32));
+            } else if (status.compareAndSet(CONFIRMED, RELEASED)) {
+                activitySeats.add(-seats);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Reservation{" + activityCode + ", seats = " + seats + ", " + (isReleased() ? "released" : isConfirmed() ? "confirmed" : "held") + "}";
+        }
+    }
+
+    /*
+    * Holds on every activity of an itinerary, confirmed or released together.
+    * */
+    public static final class GroupReservation {
+        private final List<Reservation> reservations;
+
+        private GroupReservation(List<Reservation> reservations) {
+            this.reservations = Collections.unmodifiableList(reservations);
+        }
+
+        public List<Reservation> getReservations() { return reservations; }
+
+        public void confirm() {
+            for (Reservation reservation : reservations) reservation.confirm();
+        }
+
+        public void release() {
+            for (Reservation reservation : reservations) reservation.release();
+        }
+    }
+
+    private final Map<String, Seats> seatsByActivity = new ConcurrentHashMap<>();
+
+    /*
+    * Holds seats on an activity. The activity is added to the inventory with its capacity the first time it is seen.
+    * Throws IllegalStateException if there are not enough free seats.
+    * */
+    public Reservation hold(Activity activity, int seats) {
+        Reservation reservation = tryHold(activity, seats);
+        if (reservation == null) {
+            throw new IllegalStateException("Not enough seats on " + activity.getCode() + ": asked for " + seats + ", " + getAvailableSeats(activity) + " free");
+        }
+        return reservation;
+    }
+
+    // Same as hold, but returns null instead of throwing when there are not enough free seats
+    public Reservation tryHold(Activity activity, int seats) {
+        if (seats < 1) {
+            throw new IllegalArgumentException("Number of seats must be at least 1");
+        }
+        Seats activitySeats = seatsOf(activity);
+        return activitySeats.tryHold(seats) ? new Reservation(activity.getCode(), activitySeats, seats) : null;
+    }
+
+    /*
+    * Holds the same number of seats on every activity, e.g. one per attendee of an itinerary.
+    * Either every hold succeeds, or the ones already taken are released and IllegalStateException is thrown.
+    * */
+    public GroupReservation holdAll(Collection<Activity> activities, int seats) {
+        List<Reservation> reservations = new ArrayList<>(activities.size());
+        for (Activity activity : activities) {
+            Reservation reservation = tryHold(activity, seats);
+            if (reservation == null) {
+                for (Reservation taken : reservations) taken.release();
+                throw new IllegalStateException("Not enough seats on " + activity.getCode() + ": asked for " + seats + ", " + getAvailableSeats(activity) + " free");
+            }
+            reservations.add(reservation);
+        }
+        return new GroupReservation(reservations);
+    }
+
+    public int getAvailableSeats(Activity activity) {
+        Seats activitySeats = seatsOf(activity);
+        long state = activitySeats.state.get();
+        return (int) (activitySeats.capacity - (state >>> 32) - (state & 0xFFFFFFFFL));
+    }
+
+    public int getHeldSeats(Activity activity) {
+        return seatsOf(activity).held();
+    }
+
+    public int getConfirmedSeats(Activity activity) {
+        return seatsOf(activity).confirmed();
+    }
+
+    private Seats seatsOf(Activity activity) {
+        return seatsByActivity.computeIfAbsent(activity.getCode(), code -> new Seats(activity.getCapacity()));
+    }
+}
@@ -0,0 +1,42 @@
+package Application.DataPlanner.Activity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+* Gives each distinct string a small int id, in order of first appearance, so catalogue data that repeats the same
+* names, descriptions and codes can store an int per value instead of a reference per copy. Not thread-safe.
+* */
+final class StringInterner {
+
+    private final Map<String, Integer> idsByString = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+
+    // Returns the id of the string, giving it the next id if it has not been seen before. Null is always -1
+    int intern(String string) {
+        if (string == null) return -1;
+        Integer id = idsByString.get(string);
+        if (id == null) {
+            id = strings.size();
+            idsByString.put(string, id);
+            strings.add(string);
+        }
+        return id;
+    }
+
+    // Returns the id of the string, or -1 if it has never been interned
+    int idOf(String string) {
+        Integer id = string == null ? null : idsByString.get(string);
+        return id == null ? -1 : id;
+    }
+
+    String get(int id) {
+        return id < 0 ? null : strings.get(id);
+    }
+
+    int size() {
+        return strings.size();
+    }
+}
@@ -0,0 +1,116 @@
+package Application.DataPlanner.itinerary;
+
+import Application.DataPlanner.Activity.Activity;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Keeps the time windows of an itinerary's activities in start order so that double-bookings are caught as activities are added.
+ * An activity occupies the time from its {@code dateAndTime} up to, but not including, {@code dateAndTime + durationInMinutes},
+ * so an activity may start the minute the previous one ends.
+ * <p>
+ * Every window in the schedule is kept free of overlaps, so checking a new activity only needs the windows directly
+ * before and after it: O(log n) per activity. {@link #findConflicts(Collection)} checks a whole collection with a sweep line
+ * in O(n log n), plus the number of overlapping pairs it reports.
+ * <p>
+ * Activities without a date and time, or with no duration, cannot clash with anything and are not tracked.
+ * Times are compared as UTC.
+ *
+ * @see ScheduleConflict
+ */
+public class ActivitySchedule {
+
+    // Start (epoch second) to activity; the windows never overlap, so starts are unique
+    private final TreeMap<Long, Activity> activitiesByStart = new TreeMap<>();
+
+    /**
+     * Returns the activity already in the schedule that overlaps {@code activity}, if any.
+     *
+     * @param activity the activity to check
+     * @return an overlapping activity, or {@code null} if it fits
+     */
+    public Activity findConflict(Activity activity) {
+        if (!isScheduled(activity)) return null;
+        long start = startOf(activity);
+        long end = endOf(activity);
+
+        Map.Entry<Long, Activity> before = activitiesByStart.floorEntry(start);
+        if (before != null && before.getValue() != activity && endOf(before.getValue()) > start) return before.getValue();
+        Map.Entry<Long, Activity> after = activitiesByStart.higherEntry(start);
+        if (after != null && after.getKey() < end) return after.getValue();
+        return null;
+    }
+
+    /**
+     * Adds an activity to the schedule.
+     *
+     * @param activity the activity to add
+     * @throws IllegalArgumentException if it overlaps an activity already in the schedule
+     */
+    public void add(Activity activity) {
+        Activity conflict = findConflict(activity);
+        if (conflict != null) {
+            ScheduleConflict clash = startOf(conflict) <= startOf(activity)
+                    ? new ScheduleConflict(conflict, activity) : new ScheduleConflict(activity, conflict);
+            throw new IllegalArgumentException("Activity " + activity.getCode() + " clashes with the schedule: " + clash);
+        }
+        if (isScheduled(activity)) activitiesByStart.put(startOf(activity), activity);
+    }
+
+    /**
+     * Removes an activity from the schedule, if it is in it.
+     *
+     * @param activity the activity to remove
+     */
+    public void remove(Activity activity) {
+        if (isScheduled(activity) && activitiesByStart.remove(startOf(activity), activity)) return;
+        // Its time may have been changed since it was added, so fall back to searching for it
+        activitiesByStart.values().remove(activity);
+    }
+
+    public void clear() {
+        activitiesByStart.clear();
+    }
+
+    /**
+     * Finds every pair of overlapping activities, e.g. to re-check an itinerary after activity times have been changed.
+     * Sorts the windows by start, then sweeps through them keeping the activities still running in a heap ordered by end.
+     *
+     * @param activities the activities to check
+     * @return every overlapping pair, ordered by the start of the later activity
+     */
+    public static List<ScheduleConflict> findConflicts(Collection<Activity> activities) {
+        List<Activity> scheduled = new ArrayList<>(activities.size());
+        for (Activity activity : activities) if (isScheduled(activity)) scheduled.add(activity);
+        scheduled.sort(Comparator.comparingLong(ActivitySchedule::startOf));
+
+        List<ScheduleConflict> conflicts = new ArrayList<>();
+        PriorityQueue<Activity> running = new PriorityQueue<>(Comparator.comparingLong(ActivitySchedule::endOf));
+        for (Activity activity : scheduled) {
+            long start = startOf(activity);
+            while (!running.isEmpty() && endOf(running.peek()) <= start) running.poll();
+            for (Activity stillRunning : running) conflicts.add(new ScheduleConflict(stillRunning, activity));
+            running.add(activity);
+        }
+        return conflicts;
+    }
+
+    private static boolean isScheduled(Activity activity) {
+        return activity.getDateAndTime() != null && activity.getDurationInMinutes() > 0;
+    }
+
+    private static long startOf(Activity activity) {
+        return activity.getDateAndTime().toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static long endOf(Activity activity) {
+        return startOf(activity) + 60L * activity.getDurationInMinutes();
+    }
+}
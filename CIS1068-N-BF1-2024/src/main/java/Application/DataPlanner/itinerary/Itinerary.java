@@ -1,9 +1,19 @@
 package Application.DataPlanner.itinerary;
 import Application.DataPlanner.Activity.Activity;
+import Application.DataPlanner.Activity.SeatInventory;
+import Utils.Converter.CurrencyConverter;
+import Utils.Converter.ExchangeRateTable;
+import Utils.Converter.Money;
 import Utils.Converter.MoneyConverter;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -17,12 +27,16 @@ import java.util.stream.Collectors;
  */
 public class Itinerary {
 /**
-     * List of all activities in the itinerary, initialized as an ArrayList in the constructor.
-     * This list contains Activity objects.
+     * All activities in the itinerary keyed by their code, in the order they were added.
+     * Adding, removing and finding an activity by code take constant time, however large the package is.
      *
      * @see Activity
      */
-    private final List<Activity> activities;
+    private final LinkedHashMap<String, Activity> activities;
+    /**
+     * Read-only list of the activities handed out by {@link #getActivities()}, built on first use after each change.
+     */
+    private List<Activity> activityList;
     /**
      * List of itinerary addons.
      * This list contains `ItineraryAddon` objects which are enumerations.
@@ -30,14 +44,20 @@ public class Itinerary {
      * @see ItineraryAddon
      */
     private List<ItineraryAddon> itineraryAddons; // DO NOT MAKE IT FINAL!
+    /**
+     * Time windows of the activities, used to reject activities that would double-book attendees.
+     *
+     * @see ActivitySchedule
+     */
+    private final ActivitySchedule schedule = new ActivitySchedule();
     /**
      * Default constructor for the Itinerary class.
      * Initializes the activities and itineraryAddons lists.
      * Requires user to add activities and itineraryAddons manually, in the method call.
      */
     public Itinerary () {
-        // WARNING! Do not change ArrayList to other List implementations!
-        this.activities = new ArrayList<>();
+        // Insertion ordered, so callers see activities in the order they were added
+        this.activities = new LinkedHashMap<>();
         // Possible use Arrays with initialised length of ItineraryAddon.values().length
         this.itineraryAddons = new ArrayList<>();
     }
@@ -56,18 +76,14 @@ public class Itinerary {
      * </pre>
      *
      * @param activities the list of activities to initialize the itinerary with
-     * @throws IllegalArgumentException if any activity already exists in the itinerary
+     * @throws IllegalArgumentException if the list holds the same activity twice, or activities whose times overlap
      */
     public Itinerary(List<Activity> activities) {
-        // Possible use Arrays with initialised length of activities.size()
-        this.activities = new ArrayList<>();
+        this.activities = new LinkedHashMap<>(Math.max(16, (int) (activities.size() / 0.75f) + 1));
         // Possible use Arrays with initialised length of ItineraryAddon.values().length
         this.itineraryAddons = new ArrayList<>();
-        // Catches exception thrown by addActivities method
-        try { addActivities(activities); } catch (IllegalArgumentException e) {
-            System.err.println(e.getMessage());
-            // TODO: Possible Implementation: Add a method to handle this exception
-        }
+        // Not caught: a half-built itinerary would be priced and booked as if it were the whole package
+        addActivities(activities);
     }
     /**
      * Adds an activity to the itinerary. Checks if the activity already exists in the itinerary.
@@ -83,15 +99,19 @@ public class Itinerary {
      * }</pre>
      *
      * @param activity the activity to be added
-     * @throws IllegalArgumentException if the activity already exists in the itinerary
+     * @throws IllegalArgumentException if the activity already exists in the itinerary, or overlaps the time of another activity in it
      */
     public void addActivity(Activity activity) {
-        if (doesActivityExist(activity))
-            this.activities.add(activity);
-        else throw new IllegalArgumentException("Activity " + activity.getCode() + " already exists in the itinerary (size) " + activities.size());
+        if (doesActivityExist(activity)) {
+            this.schedule.add(activity); // Throws if it clashes
+            this.activities.put(activity.getCode(), activity);
+            this.activityList = null;
+        }
+        else throw new IllegalArgumentException("Activity " + activity.getCode() + " already exists in the itinerary (size) " + this.activities.size());
     }
     /**
- * Adds multiple activities to the itinerary. Works similarly to {@link #addActivity} method.
+ * Adds multiple activities to the itinerary. Works similarly to {@link #addActivity} method, but all or nothing:
+ * the whole list is checked against itself and the itinerary first, and if anything is wrong nothing is added.
  * <p>
  * Example Usage:
  * <pre>
@@ -111,13 +131,33 @@ public class Itinerary {
  * </pre>
  *
  * @param activities the list of activities to be added
- * @throws IllegalArgumentException if any activity already exists in the itinerary
+ * @throws IllegalArgumentException if any activity already exists in the itinerary or appears twice in the list,
+ * or overlaps the time of another activity in the list or the itinerary
  */
     public void addActivities(List<Activity> activities) {
-        for (Activity activity : activities)
-            if (doesActivityExist(activity))
-                this.activities.add(activity);
-            else throw new IllegalArgumentException("Activity " + activity.getCode() + " already exists in the itinerary (size) " + activities.size());
+        Set<String> codes = new HashSet<>();
+        for (Activity activity : activities) {
+            if (!doesActivityExist(activity))
+                throw new IllegalArgumentException("Activity " + activity.getCode() + " already exists in the itinerary (size) " + this.activities.size());
+            if (!codes.add(activity.getCode()))
+                throw new IllegalArgumentException("Activity " + activity.getCode() + " appears more than once in the list");
+        }
+
+        List<ScheduleConflict> conflicts = ActivitySchedule.findConflicts(activities);
+        if (!conflicts.isEmpty())
+            throw new IllegalArgumentException("Activities clash with each other: " + conflicts.get(0));
+        for (Activity activity : activities) {
+            Activity conflict = this.schedule.findConflict(activity);
+            if (conflict != null)
+                throw new IllegalArgumentException("Activity " + activity.getCode() + " clashes with " + conflict.getCode() + " already in the itinerary");
+        }
+
+        // Checked above, so nothing below can throw part way through
+        for (Activity activity : activities) {
+            this.schedule.add(activity);
+            this.activities.put(activity.getCode(), activity);
+        }
+        this.activityList = null;
     }
     /**
      * Returns a list of all activities in the itinerary.
@@ -128,10 +168,15 @@ public class Itinerary {
      * List<Activity> activities = week34to35_2025Package.getActivities();
      * }</pre>
      *
-     * @return a list of all activities in the itinerary
+     * @return a read-only list of all activities in the itinerary, in the order they were added
      */
     public List<Activity> getActivities() {
-        return this.activities;
+        List<Activity> list = this.activityList;
+        if (list == null) {
+            list = Collections.unmodifiableList(new ArrayList<>(this.activities.values()));
+            this.activityList = list;
+        }
+        return list;
     }
     /**
      * Checks if an activity already exists in the itinerary. Private method used by {@link #addActivity} and {@link #addActivities(List)} method.
@@ -140,42 +185,89 @@ public class Itinerary {
      * @return true if the activity does not exist in the itinerary, false otherwise
      */
     private boolean doesActivityExist(Activity activity) {
-        for (Activity a : activities)
-            if (a.getCode().equals(activity.getCode()))
-                return false;
-        return true;
+        return !activities.containsKey(activity.getCode());
     }
 
+    // Activities are keyed by their code, which never changes, so the itinerary cannot hold two with the same code
     public boolean checkForDuplicates() {
-        for (int i = 0; i < activities.size(); i++) /* AND */ for (int j = i + 1; j < activities.size(); j++)
-                if (activities.get(i).getCode().equals(activities.get(j).getCode()))
-                    return true;
         return false;
     }
 
     public void removeActivity(Activity activity) {
-        for (int i = 0; i < activities.size(); i++)
-            if (activities.get(i).getCode().equals(activity.getCode())) {
-                activities.remove(i);
-                return;
-            }
+        removeActivity(activity.getCode());
     }
 
     public void removeActivity(String activityCode) {
-        for (int i = 0; i < activities.size(); i++)
-            if (activities.get(i).getCode().equals(activityCode)) {
-                activities.remove(i);
-                return;
-            }
+        Activity removed = activities.remove(activityCode);
+        if (removed != null) {
+            schedule.remove(removed);
+            activityList = null;
+        }
+    }
+
+    /**
+     * Finds every pair of activities in the itinerary whose times overlap. Adding activities already rejects clashes,
+     * so this is for re-checking after activity times or durations have been changed.
+     *
+     * @return every overlapping pair, empty if nobody is double-booked
+     * @see ActivitySchedule#findConflicts(java.util.Collection)
+     */
+    public List<ScheduleConflict> findScheduleConflicts() {
+        return ActivitySchedule.findConflicts(activities.values());
+    }
+
+    /**
+     * Holds a seat for every attendee on every activity of the itinerary, all or nothing.
+     * Confirm the returned reservation once the booking is paid for, or release it if it is abandoned.
+     *
+     * @param inventory the seat inventory to book from
+     * @param noOfAttendees the number of seats to hold on each activity
+     * @return the holds on every activity
+     * @throws IllegalStateException if any activity does not have enough free seats; nothing is held in that case
+     */
+    public SeatInventory.GroupReservation reserveSeats(SeatInventory inventory, int noOfAttendees) {
+        return inventory.holdAll(activities.values(), noOfAttendees);
     }
 
     public MoneyConverter finalPriceDiscounted(int noOfAttendees) {
-        int price =  (finalPriceBeforeDiscount() - (finalPriceBeforeDiscount() * (new DiscountCalculator(activities.size(), noOfAttendees).calculateDiscount() / 100)));
-        return new MoneyConverter(() -> 1).setBalance(price);
+        return new MoneyConverter(() -> 1).setBalance(Math.toIntExact(finalPriceDiscountedInPence(noOfAttendees)));
+    }
+
+    public long finalPriceDiscountedInPence(int noOfAttendees) {
+        long price = finalPriceBeforeDiscountInPence();
+        int discount = new DiscountCalculator(activities.size(), noOfAttendees).calculateDiscount();
+        // Same arithmetic as finalPriceDiscounted has always used: the percentage is divided by 100 in int arithmetic first
+        return price - price * (discount / 100);
+    }
+
+    public Money finalPriceDiscountedMoney(int noOfAttendees) {
+        return Money.ofPence(finalPriceDiscountedInPence(noOfAttendees));
+    }
+
+    /**
+     * Quotes the discounted price of the itinerary in every currency the rate table knows, in one pass.
+     * The price is worked out once in pence and then converted, so every quote is based on the same total.
+     *
+     * @param noOfAttendees the number of attendees, used for the discount
+     * @param rates the exchange rates to quote with
+     * @return the quote in each currency, keyed by country
+     */
+    public Map<MoneyConverter.countryShortNames, Money> quoteInAllCurrencies(int noOfAttendees, ExchangeRateTable rates) {
+        long[] price = { finalPriceDiscountedInPence(noOfAttendees) };
+        Map<MoneyConverter.countryShortNames, Money> quotes = new EnumMap<>(MoneyConverter.countryShortNames.class);
+        CurrencyConverter.convertToAll(price, MoneyConverter.countryShortNames.UK, rates)
+                .forEach((country, converted) -> quotes.put(country, Money.of(converted[0], country)));
+        return quotes;
     }
 
     public int priceOfAllActivityAddons() {
-        return activities.stream().mapToInt(Activity::addonsCost).sum();
+        return activities.values().stream().mapToInt(Activity::addonsCost).sum();
+    }
+
+    public long priceOfAllActivityAddonsInPence() {
+        long total = 0;
+        for (Activity activity : activities.values()) total += activity.addonsCost();
+        return total;
     }
 
     public int priceOfAllItineraryAddons() {
@@ -213,23 +305,36 @@ public class Itinerary {
     /* 30min of breaking my keyboard... */
 
     public int finalPriceBeforeDiscount() {
-        return activities.stream().mapToInt(Activity::calculateFinalCostInPence).sum();
+        return Math.toIntExact(finalPriceBeforeDiscountInPence());
+    }
+
+    // Plain loops over primitives, so no boxing and no int overflow for large packages
+    public long finalPriceBeforeDiscountInPence() {
+        long total = 0;
+        for (Activity activity : activities.values()) total += activity.calculateFinalCostInPence();
+        return total;
     }
 
     public int priceOfAllActivities() {
-        return activities.stream().mapToInt(Activity::getBaseCostInPence).sum();
+        return Math.toIntExact(priceOfAllActivitiesInPence());
+    }
+
+    public long priceOfAllActivitiesInPence() {
+        long total = 0;
+        for (Activity activity : activities.values()) total += activity.getBaseCostInPence();
+        return total;
     }
 
     public Activity getActivityByCode(String activityCode) {
-        return activities
-                .stream().filter(activity -> activity.getCode().equals(activityCode)).findFirst().orElseThrow(
-                        () -> new IllegalArgumentException("Activity with code " + activityCode + " not found in the itinerary. The closest match is: "
-                                + activities.stream().filter(activity -> activity.getCode().contains(activityCode)).findFirst().map(Activity::getCode).orElse("NaN")));
-        // Hopefully I will never have to come back to this code again.
+        Activity activity = activities.get(activityCode);
+        if (activity != null) return activity;
+        // Only a miss scans, to suggest the closest match
+        throw new IllegalArgumentException("Activity with code " + activityCode + " not found in the itinerary. The closest match is: "
+                + activities.keySet().stream().filter(code -> code.contains(activityCode)).findFirst().orElse("NaN"));
     }
 
     public List<Activity> getActivitiesByType(Class<?> activityType) {
-        return activities.stream().filter(activity -> activity.getClass().equals(activityType)).collect(Collectors.toList());
+        return activities.values().stream().filter(activity -> activity.getClass().equals(activityType)).collect(Collectors.toList());
     }
 
 
@@ -0,0 +1,19 @@
+package Application.DataPlanner.itinerary;
+
+import Application.DataPlanner.Activity.Activity;
+
+/**
+ * Two activities whose time windows overlap, so nobody can attend both.
+ * {@code first} always starts no later than {@code second}.
+ *
+ * @param first the activity that starts first
+ * @param second the activity that starts while {@code first} is still running
+ */
+public record ScheduleConflict(Activity first, Activity second) {
+
+    @Override
+    public String toString() {
+        return first.getCode() + " (" + first.getDateAndTime() + ", " + first.getDurationInMinutes() + " min) overlaps "
+                + second.getCode() + " (" + second.getDateAndTime() + ", " + second.getDurationInMinutes() + " min)";
+    }
+}
@@ -50,9 +50,9 @@ public class Main {
                         30,
                         true,
                         new ArrayList<>(List.of(
-                                new InsuranceAddon(),
-                                new PhotographyAddon(),
-                                new TravelAddon()
+                                InsuranceAddon.INSTANCE,
+                                PhotographyAddon.INSTANCE,
+                                TravelAddon.INSTANCE
                         )))
         );
         week34_2025Register.addActivity(
@@ -66,8 +66,8 @@ public class Main {
                         30,
                         true,
                         new ArrayList<>(List.of(
-                                new PhotographyAddon(),
-                                new TravelAddon()
+                                PhotographyAddon.INSTANCE,
+                                TravelAddon.INSTANCE
                         )))
         );
         week34_2025Register.addActivity(
@@ -81,7 +81,7 @@ public class Main {
                         70,
                         false,
                         new ArrayList<>(List.of(
-                                new TravelAddon()
+                                TravelAddon.INSTANCE
                         )))
         );
 
@@ -96,7 +96,7 @@ public class Main {
                         120,
                         true,
                         new ArrayList<>(List.of(
-                                new InsuranceAddon()
+                                InsuranceAddon.INSTANCE
                         )))
         );
 
@@ -111,12 +111,13 @@ public class Main {
                         30,
                         true,
                         new ArrayList<>(List.of(
-                                new InsuranceAddon()
+                                InsuranceAddon.INSTANCE
                         )))
         );
 
-        System.out.println("DEBUG: " + week34_2025Register.listAllActivitiesOfAKind("SAS"));
-        System.out.println(ActivityRegistry.getIndividualReferenceList());
+        System.out.println("DEBUG: " + week34_2025Register.listAllActivitiesOfAKind(SASCourseActivity.classReference));
+        System.out.println(week34_2025Register.getIndividualReferenceList());
+        System.out.println(week35_2025Register.getIndividualReferenceList());
 
         // Step 2: Create the factory, passing the register
         ActivityFactory week34Activities = new ActivityFactory(week34_2025Register);
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2024
+ * Author: Mateusz Podeszwa
+ * All rights reserved.
+ */
+
+package Utils.Collections;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The {@code LongHashMap} class is a hash map keyed by primitive {@code long} values.
+ * Unlike {@code HashMap<Long, V>} it never boxes keys and allocates nothing on lookups, insertions of existing keys
+ * or removals; it only allocates when it has to grow.
+ *
+ * <p>Entries are stored in two parallel arrays using open addressing with linear probing. Removal shifts later
+ * entries back, so there are no tombstones and lookups stay fast after many removals.
+ * {@code null} values are not permitted. The map is not thread safe.
+ *
+ * <p>
+ * <b>Example usage:</b>
+ * <pre>
+ * LongHashMap&lt;String&gt; names = new LongHashMap&lt;&gt;();
+ * names.put(42L, "answer");
+ * String name = names.get(42L);                     // "answer"
+ * </pre>
+ *
+ * @param <V> the type of the values
+ * @version 1.0
+ * @since 2024
+ */
+public final class LongHashMap<V> {
+
+    /**
+     * Receives every entry of the map in turn, see {@link #forEach(EntryConsumer)}.
+     *
+     * @param <V> the type of the values
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(long key, V value);
+    }
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+    private int resizeAt;
+
+    /**
+     * Constructs an empty map with room for 16 entries before it grows.
+     */
+    public LongHashMap() {
+        this(16);
+    }
+
+    /**
+     * Constructs an empty map with room for {@code expectedSize} entries before it grows.
+     *
+     * @param expectedSize the number of entries expected.
+     */
+    public LongHashMap(int expectedSize) {
+        allocate(tableSizeFor(Math.max(expectedSize, 4)));
+    }
+
+    /**
+     * Returns the number of entries in the map.
+     *
+     * @return the size.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns {@code true} if the map holds no entries.
+     *
+     * @return whether the map is empty.
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Returns the value mapped to {@code key}.
+     *
+     * @param key the key.
+     * @return the value, or {@code null} if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int slot = find(key);
+        return slot < 0 ? null : (V) this.values[slot];
+    }
+
+    /**
+     * Returns {@code true} if a value is mapped to {@code key}.
+     *
+     * @param key the key.
+     * @return whether the key is present.
+     */
+    public boolean containsKey(long key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Maps {@code key} to {@code value}, replacing any previous value.
+     *
+     * @param key the key.
+     * @param value the value; must not be {@code null}.
+     * @return the previous value, or {@code null} if there was none.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        Objects.requireNonNull(value, "Value cannot be null");
+        int slot = slotOf(key);
+        while (this.values[slot] != null) {
+            if (this.keys[slot] == key) {
+                V previous = (V) this.values[slot];
+                this.values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        this.keys[slot] = key;
+        this.values[slot] = value;
+        if (++this.size > this.resizeAt)
+            allocateAndRehash(this.keys.length * 2);
+        return null;
+    }
+
+    /**
+     * Maps {@code key} to {@code value} only if no value is mapped to it yet.
+     *
+     * @param key the key.
+     * @param value the value; must not be {@code null}.
+     * @return the existing value, or {@code null} if {@code value} was inserted.
+     */
+    public V putIfAbsent(long key, V value) {
+        V existing = get(key);
+        return existing != null ? existing : put(key, value);
+    }
+
+    /**
+     * Removes the value mapped to {@code key}.
+     *
+     * @param key the key.
+     * @return the removed value, or {@code null} if there was none.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int slot = find(key);
+        if (slot < 0)
+            return null;
+
+        V removed = (V) this.values[slot];
+        this.size--;
+
+        // Shift back any later entry whose probe sequence passes through the freed slot.
+        int gap = slot;
+        int next = (gap + 1) & this.mask;
+        while (this.values[next] != null) {
+            int home = slotOf(this.keys[next]);
+            if (((next - home) & this.mask) >= ((next - gap) & this.mask)) {
+                this.keys[gap] = this.keys[next];
+                this.values[gap] = this.values[next];
+                gap = next;
+            }
+            next = (next + 1) & this.mask;
+        }
+        this.values[gap] = null;
+        return removed;
+    }
+
+    /**
+     * Removes every entry from the map.
+     */
+    public void clear() {
+        Arrays.fill(this.values, null);
+        this.size = 0;
+    }
+
+    /**
+     * Passes every entry to {@code consumer}, in no particular order.
+     *
+     * @param consumer the consumer of the entries.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> consumer) {
+        for (int i = 0; i < this.values.length; i++)
+            if (this.values[i] != null)
+                consumer.accept(this.keys[i], (V) this.values[i]);
+    }
+
+    private int find(long key) {
+        int slot = slotOf(key);
+        while (this.values[slot] != null) {
+            if (this.keys[slot] == key)
+                return slot;
+            slot = (slot + 1) & this.mask;
+        }
+        return -1;
+    }
+
+    private int slotOf(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & this.mask;
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+        this.resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void allocateAndRehash(int capacity) {
+        long[] oldKeys = this.keys;
+        Object[] oldValues = this.values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] == null)
+                continue;
+            int slot = slotOf(oldKeys[i]);
+            while (this.values[slot] != null)
+                slot = (slot + 1) & this.mask;
+            this.keys[slot] = oldKeys[i];
+            this.values[slot] = oldValues[i];
+        }
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int needed = (int) Math.min(1L << 30, (long) Math.ceil(expectedSize / LOAD_FACTOR));
+        return Integer.highestOneBit(needed - 1) << 1;
+    }
+}
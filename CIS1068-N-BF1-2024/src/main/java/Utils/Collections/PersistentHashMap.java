@@ -0,0 +1,401 @@
+/*
+ * Copyright (c) 2024
+ * Author: Mateusz Podeszwa
+ * All rights reserved.
+ */
+
+package Utils.Collections;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The {@code PersistentHashMap} class is an immutable hash map where every change returns a new map and leaves the old one as it was.
+ * The new map shares everything but the changed path with the old one, so {@link #plus(Object, Object)} and
+ * {@link #minus(Object)} copy at most a handful of small arrays, however large the map is.
+ *
+ * <p>The map is a hash array mapped trie: each level uses 5 more bits of the key's hash to pick one of up to 32 children,
+ * and a bitmap records which children exist, so empty slots take no space. Keys whose hashes are fully equal share a
+ * collision node. Since a map never changes, any number of threads can read it without locks, and a version that nothing
+ * refers to any more is simply garbage collected.
+ *
+ * <p>{@code null} keys and values are not permitted. The {@link Map} methods that would modify the map throw
+ * {@link UnsupportedOperationException}.
+ *
+ * <p>
+ * <b>Example usage:</b>
+ * <pre>
+ * PersistentHashMap&lt;String, Integer&gt; before = PersistentHashMap.empty();
+ * PersistentHashMap&lt;String, Integer&gt; after = before.plus("one", 1);
+ * before.size();                                     // 0
+ * after.get("one");                                  // 1
+ * </pre>
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @version 1.0
+ * @since 2024
+ */
+public final class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+
+    private static final int BITS_PER_LEVEL = 5;
+    private static final int MAX_DEPTH = 8; // 32 bits of hash in 5 bit steps, plus a collision node
+    private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(null, 0);
+
+    // A single entry, stored directly in its parent
+    private static final class Leaf<K, V> implements Map.Entry<K, V> {
+        final int hash;
+        final K key;
+        final V value;
+
+        Leaf(int hash, K key, V value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public K getKey() { return key; }
+
+        @Override
+        public V getValue() { return value; }
+
+        @Override
+        public V setValue(V value) { throw new UnsupportedOperationException("PersistentHashMap is immutable"); }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Map.Entry<?, ?> entry && key.equals(entry.getKey()) && value.equals(entry.getValue());
+        }
+
+        @Override
+        public int hashCode() { return key.hashCode() ^ value.hashCode(); }
+
+        @Override
+        public String toString() { return key + "=" + value; }
+    }
+
+    // Up to 32 children, each a Leaf, Branch or Collision, packed in the order of their bits in the bitmap
+    private static final class Branch {
+        final int bitmap;
+        final Object[] children;
+
+        Branch(int bitmap, Object[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+    }
+
+    // Leaves whose keys have exactly the same hash
+    private static final class Collision {
+        final int hash;
+        final Leaf<?, ?>[] leaves;
+
+        Collision(int hash, Leaf<?, ?>[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+    }
+
+    private final Object root; // null when empty
+    private final int size;
+
+    private PersistentHashMap(Object root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Returns the empty map. Every empty map is the same instance.
+     *
+     * @param <K> the type of the keys
+     * @param <V> the type of the values
+     * @return the empty map.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Returns the number of entries in the map.
+     *
+     * @return the size.
+     */
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the value mapped to {@code key}, without locking or allocating.
+     *
+     * @param key the key.
+     * @return the value, or {@code null} if there is none.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (key == null) return null;
+        int hash = spread(key.hashCode());
+        Object node = this.root;
+        for (int shift = 0; node != null; shift += BITS_PER_LEVEL) {
+            if (node instanceof Leaf<?, ?> leaf) {
+                return leaf.hash == hash && leaf.key.equals(key) ? (V) leaf.value : null;
+            }
+            if (node instanceof Collision collision) {
+                if (collision.hash != hash) return null;
+                for (Leaf<?, ?> leaf : collision.leaves) {
+                    if (leaf.key.equals(key)) return (V) leaf.value;
+                }
+                return null;
+            }
+            Branch branch = (Branch) node;
+            int bit = bitAt(hash, shift);
+            if ((branch.bitmap & bit) == 0) return null;
+            node = branch.children[Integer.bitCount(branch.bitmap & (bit - 1))];
+        }
+        return null;
+    }
+
+    /**
+     * Returns {@code true} if a value is mapped to {@code key}.
+     *
+     * @param key the key.
+     * @return whether the key is present.
+     */
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Returns a map with {@code key} mapped to {@code value}. This map is left unchanged.
+     *
+     * @param key the key; must not be {@code null}.
+     * @param value the value; must not be {@code null}.
+     * @return the new map, or this map if {@code key} was already mapped to this very {@code value}.
+     */
+    public PersistentHashMap<K, V> plus(K key, V value) {
+        if (key == null || value == null) {
+            throw new NullPointerException("PersistentHashMap does not permit null keys or values");
+        }
+        boolean[] added = new boolean[1];
+        Object newRoot = put(this.root, 0, new Leaf<>(spread(key.hashCode()), key, value), added);
+        if (newRoot == this.root) return this;
+        return new PersistentHashMap<>(newRoot, added[0] ? this.size + 1 : this.size);
+    }
+
+    /**
+     * Returns a map without {@code key}. This map is left unchanged.
+     *
+     * @param key the key.
+     * @return the new map, or this map if {@code key} was not present.
+     */
+    public PersistentHashMap<K, V> minus(Object key) {
+        if (key == null || this.root == null) return this;
+        Object newRoot = remove(this.root, 0, spread(key.hashCode()), key);
+        if (newRoot == this.root) return this;
+        return newRoot == null ? empty() : new PersistentHashMap<>(newRoot, this.size - 1);
+    }
+
+    /**
+     * Returns the entries of the map, in no particular order. Iterating never sees later changes, as there are none.
+     *
+     * @return a read-only set of the entries.
+     */
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new EntryIterator<>(root);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    // Returns 'node' itself when nothing changed, so callers can skip copying their own path
+    private static Object put(Object node, int shift, Leaf<?, ?> leaf, boolean[] added) {
+        if (node == null) {
+            added[0] = true;
+            return leaf;
+        }
+        if (node instanceof Leaf<?, ?> existing) {
+            if (existing.hash == leaf.hash && existing.key.equals(leaf.key)) {
+                return existing.value == leaf.value ? existing : leaf;
+            }
+            added[0] = true;
+            return merge(existing, leaf, shift);
+        }
+        if (node instanceof Collision collision) {
+            if (collision.hash != leaf.hash) {
+                // Push the collision one level down so the new key can sit beside it
+                return put(new Branch(bitAt(collision.hash, shift), new Object[]{collision}), shift, leaf, added);
+            }
+            Leaf<?, ?>[] leaves = collision.leaves;
+            for (int i = 0; i < leaves.length; i++) {
+                if (leaves[i].key.equals(leaf.key)) {
+                    if (leaves[i].value == leaf.value) return collision;
+                    Leaf<?, ?>[] replaced = leaves.clone();
+                    replaced[i] = leaf;
+                    return new Collision(collision.hash, replaced);
+                }
+            }
+            Leaf<?, ?>[] extended = new Leaf<?, ?>[leaves.length + 1];
+            System.arraycopy(leaves, 0, extended, 0, leaves.length);
+            extended[leaves.length] = leaf;
+            added[0] = true;
+            return new Collision(collision.hash, extended);
+        }
+
+        Branch branch = (Branch) node;
+        int bit = bitAt(leaf.hash, shift);
+        int index = Integer.bitCount(branch.bitmap & (bit - 1));
+        if ((branch.bitmap & bit) == 0) {
+            Object[] children = new Object[branch.children.length + 1];
+            System.arraycopy(branch.children, 0, children, 0, index);
+            children[index] = leaf;
+            System.arraycopy(branch.children, index, children, index + 1, branch.children.length - index);
+            added[0] = true;
+            return new Branch(branch.bitmap | bit, children);
+        }
+        Object child = branch.children[index];
+        Object newChild = put(child, shift + BITS_PER_LEVEL, leaf, added);
+        if (newChild == child) return branch;
+        Object[] children = branch.children.clone();
+        children[index] = newChild;
+        return new Branch(branch.bitmap, children);
+    }
+
+    // A node holding two leaves with different keys, branching until their hashes differ
+    private static Object merge(Leaf<?, ?> first, Leaf<?, ?> second, int shift) {
+        if (first.hash == second.hash) {
+            return new Collision(first.hash, new Leaf<?, ?>[]{first, second});
+        }
+        int firstBit = bitAt(first.hash, shift);
+        int secondBit = bitAt(second.hash, shift);
+        if (firstBit == secondBit) {
+            return new Branch(firstBit, new Object[]{merge(first, second, shift + BITS_PER_LEVEL)});
+        }
+        // Children are kept in bit order
+        Object[] children = Integer.compareUnsigned(firstBit, secondBit) < 0 ? new Object[]{first, second} : new Object[]{second, first};
+        return new Branch(firstBit | secondBit, children);
+    }
+
+    // Returns 'node' itself when the key is not there, or null when the node is left empty
+    private static Object remove(Object node, int shift, int hash, Object key) {
+        if (node instanceof Leaf<?, ?> leaf) {
+            return leaf.hash == hash && leaf.key.equals(key) ? null : leaf;
+        }
+        if (node instanceof Collision collision) {
+            if (collision.hash != hash) return collision;
+            Leaf<?, ?>[] leaves = collision.leaves;
+            for (int i = 0; i < leaves.length; i++) {
+                if (leaves[i].key.equals(key)) {
+                    if (leaves.length == 2) return leaves[1 - i];
+                    Leaf<?, ?>[] remaining = new Leaf<?, ?>[leaves.length - 1];
+                    System.arraycopy(leaves, 0, remaining, 0, i);
+                    System.arraycopy(leaves, i + 1, remaining, i, remaining.length - i);
+                    return new Collision(hash, remaining);
+                }
+            }
+            return collision;
+        }
+
+        Branch branch = (Branch) node;
+        int bit = bitAt(hash, shift);
+        if ((branch.bitmap & bit) == 0) return branch;
+        int index = Integer.bitCount(branch.bitmap & (bit - 1));
+        Object child = branch.children[index];
+        Object newChild = remove(child, shift + BITS_PER_LEVEL, hash, key);
+        if (newChild == child) return branch;
+
+        if (newChild == null) {
+            if (branch.children.length == 1) return null;
+            if (branch.children.length == 2 && !(branch.children[1 - index] instanceof Branch)) {
+                // A lone leaf or collision needs no branch around it, lookups check its key anyway
+                return branch.children[1 - index];
+            }
+            Object[] children = new Object[branch.children.length - 1];
+            System.arraycopy(branch.children, 0, children, 0, index);
+            System.arraycopy(branch.children, index + 1, children, index, children.length - index);
+            return new Branch(branch.bitmap & ~bit, children);
+        }
+        if (branch.children.length == 1 && !(newChild instanceof Branch)) {
+            return newChild;
+        }
+        Object[] children = branch.children.clone();
+        children[index] = newChild;
+        return new Branch(branch.bitmap, children);
+    }
+
+    private static int bitAt(int hash, int shift) {
+        return 1 << ((hash >>> shift) & 31);
+    }
+
+    // Mixes the high bits into the low ones, which pick the first levels of the trie
+    private static int spread(int hashCode) {
+        return hashCode ^ (hashCode >>> 16);
+    }
+
+    // Depth-first walk, keeping the position in each node on the path from the root
+    private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+        private final Object[] nodes = new Object[MAX_DEPTH + 1];
+        private final int[] positions = new int[MAX_DEPTH + 1];
+        private int depth = -1;
+        private Leaf<?, ?> next;
+
+        EntryIterator(Object root) {
+            if (root != null) push(root);
+            advance();
+        }
+
+        private void push(Object node) {
+            if (node instanceof Leaf<?, ?> leaf) {
+                next = leaf;
+                return;
+            }
+            nodes[++depth] = node;
+            positions[depth] = 0;
+        }
+
+        private void advance() {
+            while (next == null && depth >= 0) {
+                Object node = nodes[depth];
+                int position = positions[depth]++;
+                if (node instanceof Collision collision) {
+                    if (position < collision.leaves.length) next = collision.leaves[position];
+                    else depth--;
+                } else {
+                    Branch branch = (Branch) node;
+                    if (position < branch.children.length) push(branch.children[position]);
+                    else depth--;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map.Entry<K, V> next() {
+            if (next == null) throw new NoSuchElementException();
+            Map.Entry<K, V> entry = (Map.Entry<K, V>) next;
+            next = null;
+            advance();
+            return entry;
+        }
+    }
+}
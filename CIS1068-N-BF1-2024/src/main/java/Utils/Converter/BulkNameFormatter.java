@@ -0,0 +1,287 @@
+package Utils.Converter;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The {@code BulkNameFormatter} class formats many names in one go. Each name comes out as
+ * {@link NameFormatter#withName(String)} followed by {@link NameFormatter#getName()} would give it,
+ * and {@link #isLimitReached()} matches {@link NameFormatter#isLimitReached()}, but no formatter,
+ * regular expression or temporary string is created per name.
+ *
+ * - Names made only of ASCII characters are scanned by hand and written straight into a
+ *   reusable buffer.
+ * - Any other name falls back to {@link NameFormatter}, so full Unicode case mapping still applies.
+ * - Optionally, repeated names are remembered in a bounded, least-recently-used cache.
+ *
+ * <p>
+ * A {@code BulkNameFormatter} keeps state between calls and is not thread-safe; use one per thread.
+ * <p>
+ * Usage:
+ * <pre>{@code
+ * BulkNameFormatter formatter = BulkNameFormatter.create()
+ *     .withLimit(10)
+ *     .withCache(10_000);
+ * String formatted = formatter.format("john doe"); // "J Doe"
+ * boolean truncated = formatter.isLimitReached();  // true if trimmed
+ *
+ * formatter.formatAll(customerNames, (index, name, limitReached) -> ...);
+ * }</pre>
+ */
+public final class BulkNameFormatter {
+
+    /**
+     * Receives each formatted name from {@link #formatAll(Iterable, Sink)}.
+     */
+    @FunctionalInterface
+    public interface Sink {
+        /**
+         * Accepts one formatted name.
+         *
+         * @param index        the position of the name in the input
+         * @param name         the formatted name; a reused buffer, only valid until this method returns
+         * @param limitReached true if the name was truncated to fit the limit
+         */
+        void accept(int index, CharSequence name, boolean limitReached);
+    }
+
+    private record CachedName(String name, boolean limitReached) {
+    }
+
+    // In these locales even ASCII letters change case differently (e.g. Turkish dotted i),
+    // so every name goes through NameFormatter there.
+    private static final boolean ASCII_CASE_MAPPING_IS_SAFE =
+            !"tr".equals(Locale.getDefault().getLanguage()) && !"az".equals(Locale.getDefault().getLanguage());
+
+    private final StringBuilder buffer = new StringBuilder(32);
+    private int limit = Integer.MAX_VALUE;
+    private boolean limitReached = false;
+    private Map<String, CachedName> cache;
+
+    /**
+     * Private constructor to enforce the use of static factory methods.
+     */
+    private BulkNameFormatter() {
+        // Use static factory methods.
+    }
+
+    /**
+     * Creates a new {@code BulkNameFormatter} instance, without a limit or a cache.
+     *
+     * @return a new {@code BulkNameFormatter}
+     */
+    public static BulkNameFormatter create() {
+        return new BulkNameFormatter();
+    }
+
+    /**
+     * Sets a limit on the maximum length of each formatted name, see {@link NameFormatter#withLimit(int)}.
+     * Clears the cache, as cached names were formatted with the old limit.
+     *
+     * @param limit the maximum number of characters allowed
+     * @return this {@code BulkNameFormatter} instance for chaining
+     * @throws IllegalArgumentException if limit is less than 1
+     */
+    public BulkNameFormatter withLimit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be at least 1");
+        }
+        this.limit = limit;
+        if (cache != null) cache.clear();
+        return this;
+    }
+
+    /**
+     * Remembers up to {@code maxEntries} formatted names, dropping the least recently used one when full.
+     * Only {@link #format(String)} and the {@code String} batch methods use the cache.
+     *
+     * @param maxEntries the maximum number of names to remember
+     * @return this {@code BulkNameFormatter} instance for chaining
+     * @throws IllegalArgumentException if maxEntries is less than 1
+     */
+    public BulkNameFormatter withCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Cache must hold at least 1 name");
+        }
+        this.cache = new LinkedHashMap<>(Math.min(maxEntries, 1 << 16), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedName> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        return this;
+    }
+
+    /**
+     * Formats a full name, using the cache if there is one.
+     *
+     * @param fullName the full name, e.g. "John Doe"
+     * @return the formatted name, e.g. "J Doe"
+     * @throws IllegalArgumentException if the name is invalid or doesn't contain exactly two parts
+     */
+    public String format(String fullName) {
+        Objects.requireNonNull(fullName, "Full name cannot be null");
+        if (cache != null) {
+            CachedName cached = cache.get(fullName);
+            if (cached != null) {
+                limitReached = cached.limitReached();
+                return cached.name();
+            }
+        }
+        buffer.setLength(0);
+        String formatted = appendTo(buffer, fullName).toString();
+        if (cache != null) cache.put(fullName, new CachedName(formatted, limitReached));
+        return formatted;
+    }
+
+    /**
+     * Formats a full name and appends it to {@code out}. ASCII names are formatted without allocating.
+     *
+     * @param out      the builder to append to
+     * @param fullName the full name, e.g. "John Doe"
+     * @return {@code out}, for chaining
+     * @throws IllegalArgumentException if the name is invalid or doesn't contain exactly two parts
+     */
+    public StringBuilder appendTo(StringBuilder out, CharSequence fullName) {
+        Objects.requireNonNull(fullName, "Full name cannot be null");
+        if (!ASCII_CASE_MAPPING_IS_SAFE || !isAscii(fullName)) {
+            NameFormatter formatter = NameFormatter.create().withLimit(limit).withName(fullName.toString());
+            limitReached = formatter.isLimitReached();
+            return out.append(formatter.getName());
+        }
+
+        // Same steps as NameFormatter: trim, split on whitespace into exactly two words, trim each word.
+        int start = 0;
+        int end = fullName.length();
+        while (start < end && fullName.charAt(start) <= ' ') start++;
+        while (end > start && fullName.charAt(end - 1) <= ' ') end--;
+
+        int firstEnd = start;
+        while (firstEnd < end && !isWhitespace(fullName.charAt(firstEnd))) firstEnd++;
+        int lastStart = firstEnd;
+        while (lastStart < end && isWhitespace(fullName.charAt(lastStart))) lastStart++;
+        int lastEnd = lastStart;
+        while (lastEnd < end && !isWhitespace(fullName.charAt(lastEnd))) lastEnd++;
+        if (firstEnd == start || lastStart == end || lastEnd != end) {
+            throw new IllegalArgumentException("Full name must contain exactly two words: first and last name");
+        }
+
+        int firstNameStart = trimmedStart(fullName, start, firstEnd);
+        if (trimmedEnd(fullName, firstNameStart, firstEnd) - firstNameStart < 2) {
+            throw new IllegalArgumentException("First name must be at least two characters long");
+        }
+        int lastNameStart = trimmedStart(fullName, lastStart, lastEnd);
+        int lastNameEnd = trimmedEnd(fullName, lastNameStart, lastEnd);
+        if (lastNameEnd - lastNameStart < 2) {
+            throw new IllegalArgumentException("Last name must be at least two characters long");
+        }
+
+        int outStart = out.length();
+        out.append(toUpperCase(fullName.charAt(firstNameStart))).append(' ')
+                .append(toUpperCase(fullName.charAt(lastNameStart)));
+        for (int i = lastNameStart + 1; i < lastNameEnd; i++) {
+            out.append(toLowerCase(fullName.charAt(i)));
+        }
+
+        limitReached = out.length() - outStart > limit;
+        if (limitReached) out.setLength(outStart + limit);
+        return out;
+    }
+
+    /**
+     * Formats every name in turn into a reused buffer and hands it to {@code sink}.
+     * Nothing is allocated per ASCII name.
+     *
+     * @param fullNames the full names
+     * @param sink      receives each formatted name
+     * @throws IllegalArgumentException if a name is invalid; the message gives its index
+     */
+    public void formatAll(Iterable<? extends CharSequence> fullNames, Sink sink) {
+        int index = 0;
+        for (CharSequence fullName : fullNames) {
+            buffer.setLength(0);
+            try {
+                appendTo(buffer, fullName);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Name at index " + index + ": " + e.getMessage(), e);
+            }
+            sink.accept(index++, buffer, limitReached);
+        }
+    }
+
+    /**
+     * Formats every name into {@code destination}, using the cache if there is one.
+     *
+     * @param fullNames   the full names
+     * @param destination receives the formatted names; at least as long as {@code fullNames}
+     * @return the number of names that were truncated to fit the limit
+     * @throws IllegalArgumentException if a name is invalid (the message gives its index) or {@code destination} is too short
+     */
+    public int formatAll(List<String> fullNames, String[] destination) {
+        if (destination.length < fullNames.size()) {
+            throw new IllegalArgumentException("Destination holds " + destination.length + " names but there are " + fullNames.size());
+        }
+        int truncated = 0;
+        for (int i = 0; i < fullNames.size(); i++) {
+            try {
+                destination[i] = format(fullNames.get(i));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Name at index " + i + ": " + e.getMessage(), e);
+            }
+            if (limitReached) truncated++;
+        }
+        return truncated;
+    }
+
+    /**
+     * Returns true if the last name formatted was truncated to fit the limit.
+     *
+     * @return true if the limit was reached and truncation occurred, false otherwise
+     */
+    public boolean isLimitReached() {
+        return limitReached;
+    }
+
+    /**
+     * Returns the number of names currently in the cache.
+     *
+     * @return the cache size, or 0 if there is no cache
+     */
+    public int getCacheSize() {
+        return cache == null ? 0 : cache.size();
+    }
+
+    private static boolean isAscii(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) return false;
+        }
+        return true;
+    }
+
+    // The characters matched by the regular expression \s.
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+
+    // The same characters String.trim() removes.
+    private static int trimmedStart(CharSequence text, int start, int end) {
+        while (start < end && text.charAt(start) <= ' ') start++;
+        return start;
+    }
+
+    private static int trimmedEnd(CharSequence text, int start, int end) {
+        while (end > start && text.charAt(end - 1) <= ' ') end--;
+        return end;
+    }
+
+    private static char toUpperCase(char c) {
+        return c >= 'a' && c <= 'z' ? (char) (c - ('a' - 'A')) : c;
+    }
+
+    private static char toLowerCase(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+}
@@ -0,0 +1,179 @@
+package Utils.Converter;
+
+import java.math.BigInteger;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static Utils.Converter.MoneyConverter.countryShortNames;
+
+/**
+ * <p>
+ * Converts amounts between the currencies in {@link countryShortNames} using an {@link ExchangeRateTable}.
+ * Amounts are whole numbers of the smallest unit (pence, cents, grosze) and results are rounded half up
+ * (away from zero) to the nearest smallest unit, using integer arithmetic only, so the same table always gives
+ * the same answer on every machine.
+ * </p>
+ *
+ * <p>
+ * The bulk methods convert whole {@code int[]} or {@code long[]} arrays in tight primitive loops.
+ * Arrays of {@value #PARALLEL_THRESHOLD} or more elements are split into chunks and converted in parallel
+ * on the common fork/join pool.
+ * For example:
+ * <pre>{@code
+ *     long[] pence = {250, 1_000, 99};
+ *     long[] zloty = new long[pence.length];
+ *     CurrencyConverter.convert(pence, zloty, countryShortNames.UK, countryShortNames.PL, rates);
+ * }</pre>
+ *
+ * <p>
+ * Author: Mateusz Podeszwa<br>
+ * Year: 2024<br>
+ * Version: 1.0
+ * </p>
+ */
+public final class CurrencyConverter {
+
+    // Below this many elements the cost of splitting the work outweighs running in parallel.
+    public static final int PARALLEL_THRESHOLD = 1 << 16;
+    private static final int CHUNK_SIZE = 1 << 14;
+
+    /**
+     * Private constructor, this is a static utility class.
+     */
+    private CurrencyConverter() {
+    }
+
+    /**
+     * Converts a single amount.
+     *
+     * @param money the amount in the smallest unit of {@code from}
+     * @param from the currency of the amount
+     * @param to the currency to convert to
+     * @param rates the exchange rates to use
+     * @return the amount in the smallest unit of {@code to}
+     * @throws IllegalStateException if the table has no rate for one of the currencies
+     * @throws ArithmeticException if the result does not fit in a {@code long}
+     */
+    public static long convert(long money, countryShortNames from, countryShortNames to, ExchangeRateTable rates) {
+        if (from == to) return money;
+        return convert(money, rates.getRatePerPound(to), rates.getRatePerPound(from));
+    }
+
+    /**
+     * Converts an amount of money into another currency.
+     *
+     * @param money the amount to convert
+     * @param to the currency to convert to
+     * @param rates the exchange rates to use
+     * @return the converted amount
+     */
+    public static Money convert(Money money, countryShortNames to, ExchangeRateTable rates) {
+        return Money.of(convert(money.pence(), money.currency(), to, rates), to);
+    }
+
+    /**
+     * Converts every amount in {@code source} and writes the results into {@code destination}.
+     * The two arrays may be the same array.
+     *
+     * @param source the amounts in the smallest unit of {@code from}
+     * @param destination receives the amounts in the smallest unit of {@code to}; at least as long as {@code source}
+     * @param from the currency of the amounts
+     * @param to the currency to convert to
+     * @param rates the exchange rates to use
+     * @throws IllegalArgumentException if {@code destination} is too short
+     */
+    public static void convert(long[] source, long[] destination, countryShortNames from, countryShortNames to, ExchangeRateTable rates) {
+        checkLengths(source.length, destination.length);
+        long numerator = rates.getRatePerPound(to);
+        long denominator = rates.getRatePerPound(from);
+        forEachChunk(source.length, (start, end) -> {
+            for (int i = start; i < end; i++)
+                destination[i] = convert(source[i], numerator, denominator);
+        });
+    }
+
+    /**
+     * Converts every amount in {@code source} and writes the results into {@code destination}.
+     *
+     * @param source the amounts in the smallest unit of {@code from}
+     * @param destination receives the amounts in the smallest unit of {@code to}; at least as long as {@code source}
+     * @param from the currency of the amounts
+     * @param to the currency to convert to
+     * @param rates the exchange rates to use
+     * @throws IllegalArgumentException if {@code destination} is too short
+     */
+    public static void convert(int[] source, long[] destination, countryShortNames from, countryShortNames to, ExchangeRateTable rates) {
+        checkLengths(source.length, destination.length);
+        long numerator = rates.getRatePerPound(to);
+        long denominator = rates.getRatePerPound(from);
+        forEachChunk(source.length, (start, end) -> {
+            for (int i = start; i < end; i++)
+                destination[i] = convert(source[i], numerator, denominator);
+        });
+    }
+
+    /**
+     * Converts every amount in {@code source} into every currency the table has a rate for.
+     *
+     * @param source the amounts in the smallest unit of {@code from}
+     * @param from the currency of the amounts
+     * @param rates the exchange rates to use
+     * @return one array of converted amounts per currency, in the same order as {@code source}
+     */
+    public static Map<countryShortNames, long[]> convertToAll(long[] source, countryShortNames from, ExchangeRateTable rates) {
+        Map<countryShortNames, long[]> result = new EnumMap<>(countryShortNames.class);
+        for (countryShortNames to : countryShortNames.values()) {
+            if (!rates.hasRate(to)) continue;
+            long[] converted = new long[source.length];
+            convert(source, converted, from, to, rates);
+            result.put(to, converted);
+        }
+        return result;
+    }
+
+    // Computes money * numerator / denominator, rounded half away from zero.
+    private static long convert(long money, long numerator, long denominator) {
+        long high = Math.multiplyHigh(money, numerator);
+        long low = money * numerator;
+        // The product fits in a long when the high word is just the sign extension of the low word.
+        if ((high == 0 && low >= 0) || (high == -1 && low < 0)) {
+            long quotient = low / denominator;
+            long remainder = low % denominator;
+            if (2 * Math.abs(remainder) >= denominator)
+                quotient += low < 0 ? -1 : 1;
+            return quotient;
+        }
+        return convertExactly(money, numerator, denominator);
+    }
+
+    // Slow path for products that overflow a long; only reached for amounts in the hundreds of billions of pounds.
+    private static long convertExactly(long money, long numerator, long denominator) {
+        BigInteger product = BigInteger.valueOf(money).multiply(BigInteger.valueOf(numerator));
+        BigInteger[] division = product.divideAndRemainder(BigInteger.valueOf(denominator));
+        BigInteger quotient = division[0];
+        if (division[1].abs().shiftLeft(1).compareTo(BigInteger.valueOf(denominator)) >= 0)
+            quotient = quotient.add(BigInteger.valueOf(product.signum()));
+        return quotient.longValueExact();
+    }
+
+    private static void checkLengths(int sourceLength, int destinationLength) {
+        if (destinationLength < sourceLength)
+            throw new IllegalArgumentException("Destination holds " + destinationLength + " amounts but source has " + sourceLength);
+    }
+
+    @FunctionalInterface
+    private interface RangeAction {
+        void run(int start, int end);
+    }
+
+    private static void forEachChunk(int length, RangeAction action) {
+        if (length < PARALLEL_THRESHOLD) {
+            action.run(0, length);
+            return;
+        }
+        int chunks = (length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream.range(0, chunks).parallel().forEach(chunk ->
+                action.run(chunk * CHUNK_SIZE, Math.min(length, (chunk + 1) * CHUNK_SIZE)));
+    }
+}
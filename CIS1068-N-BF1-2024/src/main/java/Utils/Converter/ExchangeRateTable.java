@@ -0,0 +1,146 @@
+package Utils.Converter;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import static Utils.Converter.MoneyConverter.countryShortNames;
+
+/**
+ * <p>
+ * An immutable, versioned table of exchange rates between the currencies in {@link countryShortNames}.
+ * Every rate is stored as a whole number of millionths of a currency unit per one Pound Sterling,
+ * so conversions can be done with integer arithmetic only and always give the same result for the same table.
+ * </p>
+ *
+ * <p>
+ * Tables are built once and then shared. A new set of rates is a new table with a new version,
+ * so quotes can record exactly which rates they were made with.
+ * For example:
+ * <pre>{@code
+ *     ExchangeRateTable rates = ExchangeRateTable.create(42)
+ *         .withRate(countryShortNames.US, "1.2713")
+ *         .withRate(countryShortNames.PL, "5.0840");
+ *     long cents = CurrencyConverter.convert(250, countryShortNames.UK, countryShortNames.US, rates);   // 318
+ * }</pre>
+ *
+ * <p>
+ * Author: Mateusz Podeszwa<br>
+ * Year: 2024<br>
+ * Version: 1.0
+ * </p>
+ */
+public final class ExchangeRateTable {
+
+    // Rates are fixed point numbers with six decimal places.
+    public static final long RATE_SCALE = 1_000_000L;
+
+    private final long version;
+    // Millionths of each currency per one pound, indexed by countryShortNames.ordinal(); 0 means not set.
+    private final long[] ratesPerPound;
+
+    private ExchangeRateTable(long version, long[] ratesPerPound) {
+        this.version = version;
+        this.ratesPerPound = ratesPerPound;
+    }
+
+    /**
+     * Creates a table that only knows Pound Sterling, at a rate of exactly 1.
+     *
+     * @param version the version of this set of rates
+     * @return the new table
+     */
+    public static ExchangeRateTable create(long version) {
+        long[] rates = new long[countryShortNames.values().length];
+        rates[countryShortNames.UK.ordinal()] = RATE_SCALE;
+        return new ExchangeRateTable(version, rates);
+    }
+
+    /**
+     * Returns a copy of this table with the rate of one currency set.
+     *
+     * @param country the country whose currency the rate is for
+     * @param ratePerPound how many units of the currency one pound buys, e.g. "1.2713"; at most six decimal places
+     * @return the new table, with the same version
+     * @throws IllegalArgumentException if the rate is not positive or has more than six decimal places
+     */
+    public ExchangeRateTable withRate(countryShortNames country, String ratePerPound) {
+        BigDecimal scaled = new BigDecimal(ratePerPound).movePointRight(6);
+        try {
+            return withRate(country, scaled.longValueExact());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Rate must have at most six decimal places: " + ratePerPound, e);
+        }
+    }
+
+    /**
+     * Returns a copy of this table with the rate of one currency set.
+     *
+     * @param country the country whose currency the rate is for
+     * @param millionthsPerPound how many millionths of a unit of the currency one pound buys
+     * @return the new table, with the same version
+     * @throws IllegalArgumentException if the rate is not positive, or if it tries to change the rate of the pound
+     */
+    public ExchangeRateTable withRate(countryShortNames country, long millionthsPerPound) {
+        if (millionthsPerPound <= 0)
+            throw new IllegalArgumentException("Exchange rate must be positive: " + millionthsPerPound);
+        if (country == countryShortNames.UK && millionthsPerPound != RATE_SCALE)
+            throw new IllegalArgumentException("The pound is the base currency, its rate is always 1");
+
+        long[] rates = Arrays.copyOf(this.ratesPerPound, this.ratesPerPound.length);
+        rates[country.ordinal()] = millionthsPerPound;
+        return new ExchangeRateTable(this.version, rates);
+    }
+
+    /**
+     * Returns a copy of this table with a different version number.
+     *
+     * @param version the new version
+     * @return the new table
+     */
+    public ExchangeRateTable withVersion(long version) {
+        return new ExchangeRateTable(version, this.ratesPerPound);
+    }
+
+    /**
+     * Returns the version of this set of rates.
+     *
+     * @return the version
+     */
+    public long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Returns {@code true} if this table has a rate for the currency.
+     *
+     * @param country the country
+     * @return whether a rate is set
+     */
+    public boolean hasRate(countryShortNames country) {
+        return this.ratesPerPound[country.ordinal()] != 0;
+    }
+
+    /**
+     * Returns the rate of a currency in millionths of a unit per one pound.
+     *
+     * @param country the country
+     * @return the rate
+     * @throws IllegalStateException if the table has no rate for the currency
+     */
+    public long getRatePerPound(countryShortNames country) {
+        long rate = this.ratesPerPound[country.ordinal()];
+        if (rate == 0)
+            throw new IllegalStateException("Exchange rate table version " + this.version + " has no rate for " + country);
+        return rate;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("ExchangeRateTable {version = ").append(this.version);
+        for (countryShortNames country : countryShortNames.values())
+            if (hasRate(country))
+                builder.append(", ").append(country).append(" = ")
+                        .append(BigDecimal.valueOf(this.ratesPerPound[country.ordinal()], 6).stripTrailingZeros().toPlainString());
+        return builder.append('}').toString();
+    }
+}
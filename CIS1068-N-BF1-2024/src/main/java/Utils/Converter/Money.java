@@ -0,0 +1,227 @@
+package Utils.Converter;
+
+import java.util.Objects;
+
+import static Utils.Converter.MoneyConverter.countryShortNames;
+
+/**
+ * <p>
+ * An immutable amount of money in the smallest currency unit (pence, cents, grosze), tagged with its currency.
+ * It is the value-type counterpart of {@link MoneyConverter}: amounts are held in a {@code long}, so they do not
+ * overflow at {@code int} pence, and every operation is checked, throwing {@link ArithmeticException}
+ * instead of silently wrapping around.
+ * </p>
+ *
+ * <p>
+ * Hot paths that only need the number should use the static helpers, such as {@link #percentOf(long, long)},
+ * which work on primitives and allocate nothing.
+ * For example:
+ * <pre>{@code
+ *     Money price = Money.of(250, countryShortNames.UK);
+ *     Money total = price.add(Money.of(100, countryShortNames.UK)).percent(110);   // 385p
+ *     String text = total.toPound();                                              // "£3.85"
+ * }</pre>
+ *
+ * <p>
+ * Author: Mateusz Podeszwa<br>
+ * Year: 2024<br>
+ * Version: 1.0
+ * </p>
+ *
+ * @param pence the amount in the smallest currency unit
+ * @param currency the country whose currency the amount is in
+ */
+public record Money(long pence, countryShortNames currency) implements Comparable<Money> {
+
+    public Money {
+        Objects.requireNonNull(currency, "Currency cannot be null");
+    }
+
+    /**
+     * Creates an amount of money.
+     *
+     * @param pence the amount in the smallest currency unit
+     * @param currency the country whose currency the amount is in
+     * @return the amount
+     */
+    public static Money of(long pence, countryShortNames currency) {
+        return new Money(pence, currency);
+    }
+
+    /**
+     * Creates an amount of Pound Sterling.
+     *
+     * @param pence the amount in pence
+     * @return the amount
+     */
+    public static Money ofPence(long pence) {
+        return new Money(pence, countryShortNames.UK);
+    }
+
+    /**
+     * Creates a zero amount in the given currency.
+     *
+     * @param currency the country whose currency the amount is in
+     * @return the zero amount
+     */
+    public static Money zero(countryShortNames currency) {
+        return new Money(0, currency);
+    }
+
+    /**
+     * Returns the sum of this amount and {@code other}.
+     *
+     * @param other the amount to add, in the same currency
+     * @return the sum
+     * @throws IllegalArgumentException if the currencies differ
+     * @throws ArithmeticException if the result overflows a {@code long}
+     */
+    public Money add(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.addExact(this.pence, other.pence), this.currency);
+    }
+
+    /**
+     * Returns the sum of this amount and {@code pence}.
+     *
+     * @param pence the amount to add, in the smallest unit of this currency
+     * @return the sum
+     * @throws ArithmeticException if the result overflows a {@code long}
+     */
+    public Money add(long pence) {
+        return new Money(Math.addExact(this.pence, pence), this.currency);
+    }
+
+    /**
+     * Returns this amount minus {@code other}.
+     *
+     * @param other the amount to subtract, in the same currency
+     * @return the difference
+     * @throws IllegalArgumentException if the currencies differ
+     * @throws ArithmeticException if the result overflows a {@code long}
+     */
+    public Money subtract(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.subtractExact(this.pence, other.pence), this.currency);
+    }
+
+    /**
+     * Returns this amount minus {@code pence}.
+     *
+     * @param pence the amount to subtract, in the smallest unit of this currency
+     * @return the difference
+     * @throws ArithmeticException if the result overflows a {@code long}
+     */
+    public Money subtract(long pence) {
+        return new Money(Math.subtractExact(this.pence, pence), this.currency);
+    }
+
+    /**
+     * Returns {@code percent}% of this amount, rounded half up to the nearest smallest unit.
+     *
+     * @param percent the percentage, e.g. 5 for 5%
+     * @return the percentage of this amount
+     * @throws ArithmeticException if the result overflows a {@code long}
+     */
+    public Money percent(long percent) {
+        return new Money(percentOf(this.pence, percent), this.currency);
+    }
+
+    /**
+     * Returns {@code percent}% of {@code pence}, rounded half up (away from zero) to the nearest smallest unit,
+     * using integer arithmetic only.
+     *
+     * @param pence the amount in the smallest unit
+     * @param percent the percentage, e.g. 5 for 5%
+     * @return the percentage of the amount
+     * @throws ArithmeticException if the result overflows a {@code long}
+     */
+    public static long percentOf(long pence, long percent) {
+        long scaled = Math.multiplyExact(pence, percent);
+        long quotient = scaled / 100;
+        long remainder = scaled % 100;
+        if (remainder >= 50) quotient++;
+        else if (remainder <= -50) quotient--;
+        return quotient;
+    }
+
+    /**
+     * Returns {@code true} if this amount is below zero.
+     *
+     * @return whether the amount is negative
+     */
+    public boolean isNegative() {
+        return this.pence < 0;
+    }
+
+    /**
+     * Returns the amount as an {@code int}, for code still working with {@link MoneyConverter}.
+     *
+     * @return the amount in the smallest unit
+     * @throws ArithmeticException if the amount does not fit in an {@code int}
+     */
+    public int toIntPence() {
+        return Math.toIntExact(this.pence);
+    }
+
+    /**
+     * Returns the amount in the main unit with its symbol, e.g. "£2.50".
+     *
+     * @return the formatted amount
+     */
+    public String toPound() {
+        return MoneyFormatter.toPound(this.pence, this.currency);
+    }
+
+    /**
+     * Returns the amount in the smallest unit with its symbol, e.g. "250p".
+     *
+     * @return the formatted amount
+     */
+    public String toPence() {
+        return MoneyFormatter.toPence(this.pence, this.currency);
+    }
+
+    /**
+     * Appends the amount in the main unit with its symbol, e.g. "£2.50", without creating a {@code String}.
+     *
+     * @param out the builder to append to
+     * @return {@code out}, for chaining
+     */
+    public StringBuilder appendPound(StringBuilder out) {
+        return MoneyFormatter.appendPound(out, this.pence, this.currency);
+    }
+
+    /**
+     * Appends the amount in the smallest unit with its symbol, e.g. "250p", without creating a {@code String}.
+     *
+     * @param out the builder to append to
+     * @return {@code out}, for chaining
+     */
+    public StringBuilder appendPence(StringBuilder out) {
+        return MoneyFormatter.appendPence(out, this.pence, this.currency);
+    }
+
+    /**
+     * Compares two amounts in the same currency.
+     *
+     * @param other the amount to compare with
+     * @return a negative number, zero or a positive number as this amount is less than, equal to or greater than {@code other}
+     * @throws IllegalArgumentException if the currencies differ
+     */
+    @Override
+    public int compareTo(Money other) {
+        requireSameCurrency(other);
+        return Long.compare(this.pence, other.pence);
+    }
+
+    @Override
+    public String toString() {
+        return toPound();
+    }
+
+    private void requireSameCurrency(Money other) {
+        if (other.currency != this.currency)
+            throw new IllegalArgumentException("Cannot combine " + this.currency + " and " + other.currency + " amounts");
+    }
+}
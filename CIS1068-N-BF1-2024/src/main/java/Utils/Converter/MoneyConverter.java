@@ -21,7 +21,7 @@ import java.util.function.Supplier;
  * <p>
  * Author: Mateusz Podeszwa<br>
  * Year: 2024<br>
- * Version: 2.3
+ * Version: 2.4
  * </p>
  */
 public class MoneyConverter {
@@ -153,9 +153,8 @@ public class MoneyConverter {
 
         // The raw money amount in the smallest currency unit.
         private final int money;
-        // The currency symbols array where CURRENCY[0] is the symbol for the main unit,
-        // and CURRENCY[1] is the symbol for the fractional unit.
-        private final String[] CURRENCY;
+        // The country determining which currency symbols to use, see MoneyFormatter for the symbol tables.
+        private final countryShortNames country;
 
         /**
          * Constructs a {@code DisplayedMoney} object.
@@ -166,13 +165,8 @@ public class MoneyConverter {
         private DisplayedMoney(int money, countryShortNames country) {
             this.money = money;
             // Maintenance note:
-            // Add more countries as needed.
-            this.CURRENCY = switch (country) {
-                case UK -> new String[] {"£", "p"};
-                case US -> new String[] {"$", "c"};
-                case PL -> new String[] {"PLN", "gr."};
-                default -> new String[] {"", ""};
-            };
+            // Add more countries to the tables in MoneyFormatter as needed.
+            this.country = country;
         }
 
         /**
@@ -182,22 +176,39 @@ public class MoneyConverter {
          * @return a string of the form "250p", "250c", or equivalent fractional unit
          */
         public String toPence() {
-            // Maintenance note:
-            // We simply append the fractional unit symbol to the integer value.
-            return this.money + this.CURRENCY[1];
+            return MoneyFormatter.toPence(this.money, this.country);
         }
 
         /**
          * Converts the raw value into a string representing the main currency unit,
          * including the currency symbol. For example, "£2.50".
          *
-         * @return a string with the main unit and symbol, formatted as a decimal
+         * @return a string with the main unit and symbol, formatted with exactly two decimal places
          */
         public String toPound() {
-            // Dividing by 100.0 to convert from pence to pounds.
             // Maintenance note:
-            // This will give a floating-point value, e.g. 250 -> £2.5
-            return this.CURRENCY[0] + (this.money / 100.0);
+            // Formatted with integer arithmetic, so 250 -> £2.50 and large values keep every digit.
+            return MoneyFormatter.toPound(this.money, this.country);
+        }
+
+        /**
+         * Appends the main currency unit form (e.g. "£2.50") to {@code out} without creating a {@code String}.
+         *
+         * @param out the builder to append to
+         * @return {@code out}, for chaining
+         */
+        public StringBuilder appendPound(StringBuilder out) {
+            return MoneyFormatter.appendPound(out, this.money, this.country);
+        }
+
+        /**
+         * Appends the smallest unit form (e.g. "250p") to {@code out} without creating a {@code String}.
+         *
+         * @param out the builder to append to
+         * @return {@code out}, for chaining
+         */
+        public StringBuilder appendPence(StringBuilder out) {
+            return MoneyFormatter.appendPence(out, this.money, this.country);
         }
     }
 
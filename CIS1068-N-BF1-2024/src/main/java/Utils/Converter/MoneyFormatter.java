@@ -0,0 +1,203 @@
+package Utils.Converter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+
+import static Utils.Converter.MoneyConverter.countryShortNames;
+
+/**
+ * <p>
+ * A zero-allocation writer for money amounts, used by {@link MoneyConverter.DisplayedMoney} and {@link Money}.
+ * It writes straight into a caller-supplied {@link StringBuilder}, {@link CharBuffer} or any other {@link Appendable},
+ * so rendering a long statement does not create a {@code String} (or anything else) per amount.
+ * </p>
+ *
+ * <p>
+ * Since version 2.4 of {@link MoneyConverter}, {@code toPound()} prints this text, which differs from what it printed before:
+ * there are always two decimal places ("£2.50", not "£2.5"), and a minus sign goes before the symbol ("-£0.05", not "£-0.05").
+ * {@link MoneyParser} reads both the old and the new forms.
+ * </p>
+ *
+ * <p>
+ * Amounts are always whole numbers of the smallest unit (pence, cents, grosze) and are formatted with integer
+ * arithmetic only, so there are always exactly two decimal places and no precision is lost on large values.
+ * For example:
+ * <pre>{@code
+ *     StringBuilder statement = new StringBuilder();
+ *     MoneyFormatter.appendPound(statement, 250, countryShortNames.UK);   // "£2.50"
+ *     MoneyFormatter.appendPence(statement, 250, countryShortNames.UK);   // "250p"
+ * }</pre>
+ *
+ * <p>
+ * Author: Mateusz Podeszwa<br>
+ * Year: 2024<br>
+ * Version: 1.0
+ * </p>
+ */
+public final class MoneyFormatter {
+
+    // Symbols of the main unit, indexed by countryShortNames.ordinal().
+    // Maintenance note:
+    // Keep these in the same order as the enum when adding more countries.
+    private static final String[] MAIN_UNIT_SYMBOLS = {"£", "PLN", "$"};
+    // Symbols of the fractional unit, indexed by countryShortNames.ordinal().
+    private static final String[] FRACTIONAL_UNIT_SYMBOLS = {"p", "gr.", "c"};
+
+    /**
+     * Private constructor, this is a static utility class.
+     */
+    private MoneyFormatter() {
+    }
+
+    /**
+     * Returns the symbol of the main currency unit for a country, e.g. "£".
+     *
+     * @param country the country
+     * @return the main unit symbol
+     */
+    public static String mainUnitSymbol(countryShortNames country) {
+        return MAIN_UNIT_SYMBOLS[country.ordinal()];
+    }
+
+    /**
+     * Returns the symbol of the fractional currency unit for a country, e.g. "p".
+     *
+     * @param country the country
+     * @return the fractional unit symbol
+     */
+    public static String fractionalUnitSymbol(countryShortNames country) {
+        return FRACTIONAL_UNIT_SYMBOLS[country.ordinal()];
+    }
+
+    /**
+     * Appends an amount in the main currency unit with exactly two decimal places, e.g. "£2.50" or "-£0.05".
+     *
+     * @param out the builder to append to
+     * @param money the amount in the smallest unit
+     * @param country the country whose symbol is used
+     * @return {@code out}, for chaining
+     */
+    public static StringBuilder appendPound(StringBuilder out, long money, countryShortNames country) {
+        if (money < 0) out.append('-');
+        out.append(MAIN_UNIT_SYMBOLS[country.ordinal()]);
+        // StringBuilder.append(long) writes digits in place without allocating.
+        long main = Math.abs(money / 100);
+        int fraction = (int) Math.abs(money % 100);
+        return out.append(main).append('.').append((char) ('0' + fraction / 10)).append((char) ('0' + fraction % 10));
+    }
+
+    /**
+     * Appends an amount in the smallest currency unit, e.g. "250p".
+     *
+     * @param out the builder to append to
+     * @param money the amount in the smallest unit
+     * @param country the country whose symbol is used
+     * @return {@code out}, for chaining
+     */
+    public static StringBuilder appendPence(StringBuilder out, long money, countryShortNames country) {
+        return out.append(money).append(FRACTIONAL_UNIT_SYMBOLS[country.ordinal()]);
+    }
+
+    /**
+     * Writes an amount in the main currency unit into a {@link CharBuffer}, see {@link #appendPound(StringBuilder, long, countryShortNames)}.
+     *
+     * @param out the buffer to write into
+     * @param money the amount in the smallest unit
+     * @param country the country whose symbol is used
+     * @return {@code out}, for chaining
+     * @throws java.nio.BufferOverflowException if the buffer is too small
+     */
+    public static CharBuffer appendPound(CharBuffer out, long money, countryShortNames country) {
+        try { appendPound((Appendable) out, money, country); }
+        catch (IOException e) { throw new UncheckedIOException(e); } // CharBuffer never throws IOException
+        return out;
+    }
+
+    /**
+     * Writes an amount in the smallest currency unit into a {@link CharBuffer}, see {@link #appendPence(StringBuilder, long, countryShortNames)}.
+     *
+     * @param out the buffer to write into
+     * @param money the amount in the smallest unit
+     * @param country the country whose symbol is used
+     * @return {@code out}, for chaining
+     * @throws java.nio.BufferOverflowException if the buffer is too small
+     */
+    public static CharBuffer appendPence(CharBuffer out, long money, countryShortNames country) {
+        try { appendPence((Appendable) out, money, country); }
+        catch (IOException e) { throw new UncheckedIOException(e); } // CharBuffer never throws IOException
+        return out;
+    }
+
+    /**
+     * Appends an amount in the main currency unit to any {@link Appendable}, such as a {@link java.io.Writer}.
+     *
+     * @param out the destination
+     * @param money the amount in the smallest unit
+     * @param country the country whose symbol is used
+     * @param <A> the type of the destination
+     * @return {@code out}, for chaining
+     * @throws IOException if the destination fails
+     */
+    public static <A extends Appendable> A appendPound(A out, long money, countryShortNames country) throws IOException {
+        if (money < 0) out.append('-');
+        out.append(MAIN_UNIT_SYMBOLS[country.ordinal()]);
+        appendDigits(out, Math.abs(money / 100));
+        int fraction = (int) Math.abs(money % 100);
+        out.append('.').append((char) ('0' + fraction / 10)).append((char) ('0' + fraction % 10));
+        return out;
+    }
+
+    /**
+     * Appends an amount in the smallest currency unit to any {@link Appendable}, such as a {@link java.io.Writer}.
+     *
+     * @param out the destination
+     * @param money the amount in the smallest unit
+     * @param country the country whose symbol is used
+     * @param <A> the type of the destination
+     * @return {@code out}, for chaining
+     * @throws IOException if the destination fails
+     */
+    public static <A extends Appendable> A appendPence(A out, long money, countryShortNames country) throws IOException {
+        if (money < 0) {
+            out.append('-');
+            // Long.MIN_VALUE has no positive counterpart, so peel off its last digit first.
+            if (money <= -10) appendDigits(out, -(money / 10));
+            out.append((char) ('0' + (int) -(money % 10)));
+        } else {
+            appendDigits(out, money);
+        }
+        out.append(FRACTIONAL_UNIT_SYMBOLS[country.ordinal()]);
+        return out;
+    }
+
+    /**
+     * Returns an amount in the main currency unit as a {@code String}, e.g. "£2.50".
+     *
+     * @param money the amount in the smallest unit
+     * @param country the country whose symbol is used
+     * @return the formatted amount
+     */
+    public static String toPound(long money, countryShortNames country) {
+        return appendPound(new StringBuilder(24), money, country).toString();
+    }
+
+    /**
+     * Returns an amount in the smallest currency unit as a {@code String}, e.g. "250p".
+     *
+     * @param money the amount in the smallest unit
+     * @param country the country whose symbol is used
+     * @return the formatted amount
+     */
+    public static String toPence(long money, countryShortNames country) {
+        return appendPence(new StringBuilder(24), money, country).toString();
+    }
+
+    // Appends the decimal digits of a non-negative value, most significant first, without a temporary buffer.
+    private static void appendDigits(Appendable out, long value) throws IOException {
+        long divisor = 1;
+        while (divisor <= value / 10) divisor *= 10;
+        for (; divisor > 0; divisor /= 10)
+            out.append((char) ('0' + (int) (value / divisor % 10)));
+    }
+}
@@ -0,0 +1,279 @@
+package Utils.Converter;
+
+import java.util.stream.IntStream;
+
+import static Utils.Converter.MoneyConverter.countryShortNames;
+
+/**
+ * <p>
+ * The inverse of {@link MoneyConverter.DisplayedMoney} and {@link MoneyFormatter}: turns formatted amounts such as
+ * "£2.50", "250p", "$3.10", "PLN12.00" or "40gr." back into a whole number of the smallest unit.
+ * </p>
+ *
+ * <p>
+ * Amounts can be parsed from a {@link CharSequence} or straight from a slice of a UTF-8 {@code byte[]},
+ * so a large statement can be parsed in place without cutting it into substrings first. Parsing uses no regular
+ * expressions and allocates nothing unless the input is invalid.
+ * </p>
+ *
+ * <p>
+ * Accepted shapes, each optionally preceded by a minus sign and surrounded by spaces:
+ * <ul>
+ *   <li>main unit: a currency symbol ("£", "$" or "PLN"), whole units, and optionally a point followed by one or two
+ *   digits, e.g. "£2.50", "£2.5" or "£2". The minus sign may also follow the symbol, e.g. "£-0.05",
+ *   as older versions of {@code toPound()} printed</li>
+ *   <li>smallest unit: whole units followed by "p", "c" or "gr.", e.g. "250p"</li>
+ * </ul>
+ * For example:
+ * <pre>{@code
+ *     long pence = MoneyParser.parse("£2.50");                                  // 250
+ *     countryShortNames country = MoneyParser.currencyOf("40gr.");              // PL
+ *     long[] amounts = new long[1_000_000];
+ *     int count = MoneyParser.parseLines(statementBytes, 0, statementBytes.length, amounts);
+ * }</pre>
+ *
+ * <p>
+ * Author: Mateusz Podeszwa<br>
+ * Year: 2024<br>
+ * Version: 1.0
+ * </p>
+ */
+public final class MoneyParser {
+
+    // Below this many texts the cost of splitting the work outweighs running in parallel.
+    public static final int PARALLEL_THRESHOLD = 1 << 14;
+
+    private static final int POUND_SIGN = 0xA3;
+    // The UTF-8 encoding of the pound sign is 0xC2 0xA3. In text, U+00C2 before it is mojibake, not a pound sign.
+    private static final int UTF8_LEAD = 0xC2;
+
+    /**
+     * Private constructor, this is a static utility class.
+     */
+    private MoneyParser() {
+    }
+
+    /**
+     * Parses a formatted amount.
+     *
+     * @param text the formatted amount, e.g. "£2.50" or "250p"
+     * @return the amount in the smallest unit
+     * @throws NumberFormatException if the text is not a supported amount, or does not fit in a {@code long}
+     */
+    public static long parse(CharSequence text) {
+        return parse(text, 0, text.length());
+    }
+
+    /**
+     * Parses a formatted amount held in part of a larger text.
+     *
+     * @param text the text holding the amount
+     * @param start the index of the first character of the amount
+     * @param end the index just past the last character of the amount
+     * @return the amount in the smallest unit
+     * @throws NumberFormatException if the slice is not a supported amount, or does not fit in a {@code long}
+     */
+    public static long parse(CharSequence text, int start, int end) {
+        return parse(text, null, start, end);
+    }
+
+    /**
+     * Parses a formatted amount held in part of a UTF-8 encoded buffer.
+     *
+     * @param utf8 the buffer holding the amount
+     * @param start the index of the first byte of the amount
+     * @param end the index just past the last byte of the amount
+     * @return the amount in the smallest unit
+     * @throws NumberFormatException if the slice is not a supported amount, or does not fit in a {@code long}
+     */
+    public static long parse(byte[] utf8, int start, int end) {
+        return parse(null, utf8, start, end);
+    }
+
+    /**
+     * Returns the currency a formatted amount is in, judging by its symbol.
+     *
+     * @param text the formatted amount, e.g. "£2.50" or "250p"
+     * @return the country whose currency the amount is in
+     * @throws NumberFormatException if the text is not a supported amount
+     */
+    public static countryShortNames currencyOf(CharSequence text) {
+        int start = skipSpaces(text, null, 0, text.length());
+        int end = trimSpaces(text, null, start, text.length());
+        if (start < end && at(text, null, start) == '-') start++;
+
+        int prefix = mainUnitSymbol(text, null, start, end);
+        if (prefix >= 0) return countryShortNames.values()[prefix >>> 8];
+
+        int digitsEnd = start;
+        while (digitsEnd < end && isDigit(at(text, null, digitsEnd))) digitsEnd++;
+        int suffix = fractionalUnitSymbol(text, null, digitsEnd, end);
+        if (digitsEnd > start && suffix >= 0) return countryShortNames.values()[suffix];
+        throw invalid(text, null, 0, text.length());
+    }
+
+    /**
+     * Parses one amount per line from a UTF-8 encoded buffer, such as a whole statement file read into memory.
+     * Lines may end in "\n" or "\r\n"; empty lines are skipped.
+     *
+     * @param utf8 the buffer holding the amounts
+     * @param start the index of the first byte to parse
+     * @param end the index just past the last byte to parse
+     * @param destination receives the parsed amounts, in order
+     * @return the number of amounts parsed
+     * @throws NumberFormatException if a line is not a supported amount; the message gives the line number
+     * @throws IndexOutOfBoundsException if {@code destination} is too short
+     */
+    public static int parseLines(byte[] utf8, int start, int end, long[] destination) {
+        int count = 0;
+        int line = 0;
+        int lineStart = start;
+        while (lineStart < end) {
+            int lineEnd = lineStart;
+            while (lineEnd < end && utf8[lineEnd] != '\n') lineEnd++;
+            line++;
+
+            int contentEnd = lineEnd > lineStart && utf8[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+            if (skipSpaces(null, utf8, lineStart, contentEnd) < contentEnd) {
+                try {
+                    destination[count++] = parse(utf8, lineStart, contentEnd);
+                } catch (NumberFormatException e) {
+                    throw new NumberFormatException("Line " + line + ": " + e.getMessage());
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        return count;
+    }
+
+    /**
+     * Parses every text in {@code texts} into {@code destination}, in parallel for large batches.
+     *
+     * @param texts the formatted amounts
+     * @param destination receives the parsed amounts; at least as long as {@code texts}
+     * @throws NumberFormatException if a text is not a supported amount
+     * @throws IllegalArgumentException if {@code destination} is too short
+     */
+    public static void parseAll(CharSequence[] texts, long[] destination) {
+        if (destination.length < texts.length)
+            throw new IllegalArgumentException("Destination holds " + destination.length + " amounts but there are " + texts.length + " texts");
+        if (texts.length < PARALLEL_THRESHOLD) {
+            for (int i = 0; i < texts.length; i++) destination[i] = parse(texts[i]);
+        } else {
+            IntStream.range(0, texts.length).parallel().forEach(i -> destination[i] = parse(texts[i]));
+        }
+    }
+
+    // Exactly one of text and utf8 is non-null; this keeps a single copy of the parsing rules for both inputs.
+    private static long parse(CharSequence text, byte[] utf8, int start, int end) {
+        int from = skipSpaces(text, utf8, start, end);
+        int to = trimSpaces(text, utf8, from, end);
+        int position = from;
+
+        boolean negative = position < to && at(text, utf8, position) == '-';
+        if (negative) position++;
+
+        long amount;
+        int prefix = mainUnitSymbol(text, utf8, position, to);
+        if (prefix >= 0) {
+            position += prefix & 0xFF;
+            // Older versions of toPound() put the sign after the symbol, e.g. "£-0.05"
+            if (!negative && position < to && at(text, utf8, position) == '-') {
+                negative = true;
+                position++;
+            }
+            int digitsStart = position;
+            long units = 0;
+            while (position < to && isDigit(at(text, utf8, position)))
+                units = accumulate(units, at(text, utf8, position++), text, utf8, from, to);
+            if (position == digitsStart) throw invalid(text, utf8, from, to);
+
+            long fraction = 0;
+            if (position < to && at(text, utf8, position) == '.') {
+                position++;
+                int fractionDigits = 0;
+                while (position < to && isDigit(at(text, utf8, position)) && fractionDigits < 2) {
+                    fraction = fraction * 10 + (at(text, utf8, position++) - '0');
+                    fractionDigits++;
+                }
+                if (fractionDigits == 0) throw invalid(text, utf8, from, to);
+                if (fractionDigits == 1) fraction *= 10;
+            }
+            if (position != to) throw invalid(text, utf8, from, to);
+            try {
+                amount = Math.addExact(Math.multiplyExact(units, 100), fraction);
+            } catch (ArithmeticException e) {
+                throw tooLarge(text, utf8, from, to);
+            }
+        } else {
+            int digitsStart = position;
+            long units = 0;
+            while (position < to && isDigit(at(text, utf8, position)))
+                units = accumulate(units, at(text, utf8, position++), text, utf8, from, to);
+            if (position == digitsStart || fractionalUnitSymbol(text, utf8, position, to) < 0)
+                throw invalid(text, utf8, from, to);
+            amount = units;
+        }
+        return negative ? -amount : amount;
+    }
+
+    // Returns (country ordinal << 8 | symbol length) if a main unit symbol starts at position, otherwise -1.
+    private static int mainUnitSymbol(CharSequence text, byte[] utf8, int position, int end) {
+        if (position >= end) return -1;
+        int c = at(text, utf8, position);
+        if (utf8 == null ? c == POUND_SIGN : c == UTF8_LEAD && position + 1 < end && at(text, utf8, position + 1) == POUND_SIGN)
+            return countryShortNames.UK.ordinal() << 8 | (utf8 == null ? 1 : 2);
+        if (c == '$') return countryShortNames.US.ordinal() << 8 | 1;
+        if (c == 'P' && position + 2 < end && at(text, utf8, position + 1) == 'L' && at(text, utf8, position + 2) == 'N')
+            return countryShortNames.PL.ordinal() << 8 | 3;
+        return -1;
+    }
+
+    // Returns the country ordinal if the remaining characters are exactly a fractional unit symbol, otherwise -1.
+    private static int fractionalUnitSymbol(CharSequence text, byte[] utf8, int position, int end) {
+        int length = end - position;
+        if (length == 1 && at(text, utf8, position) == 'p') return countryShortNames.UK.ordinal();
+        if (length == 1 && at(text, utf8, position) == 'c') return countryShortNames.US.ordinal();
+        if (length == 3 && at(text, utf8, position) == 'g' && at(text, utf8, position + 1) == 'r' && at(text, utf8, position + 2) == '.')
+            return countryShortNames.PL.ordinal();
+        return -1;
+    }
+
+    private static long accumulate(long value, int digit, CharSequence text, byte[] utf8, int from, int to) {
+        if (value > (Long.MAX_VALUE - 9) / 10) throw tooLarge(text, utf8, from, to);
+        return value * 10 + (digit - '0');
+    }
+
+    private static int at(CharSequence text, byte[] utf8, int index) {
+        return utf8 != null ? utf8[index] & 0xFF : text.charAt(index);
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int skipSpaces(CharSequence text, byte[] utf8, int start, int end) {
+        while (start < end && at(text, utf8, start) == ' ') start++;
+        return start;
+    }
+
+    private static int trimSpaces(CharSequence text, byte[] utf8, int start, int end) {
+        while (end > start && at(text, utf8, end - 1) == ' ') end--;
+        return end;
+    }
+
+    // Only called on failure, so building the message may allocate.
+    private static NumberFormatException invalid(CharSequence text, byte[] utf8, int from, int to) {
+        return new NumberFormatException("Not a supported money amount: \"" + describe(text, utf8, from, to) + "\"");
+    }
+
+    private static NumberFormatException tooLarge(CharSequence text, byte[] utf8, int from, int to) {
+        return new NumberFormatException("Money amount is too large: \"" + describe(text, utf8, from, to) + "\"");
+    }
+
+    private static String describe(CharSequence text, byte[] utf8, int from, int to) {
+        return utf8 != null
+                ? new String(utf8, from, to - from, java.nio.charset.StandardCharsets.UTF_8)
+                : text.subSequence(from, to).toString();
+    }
+}
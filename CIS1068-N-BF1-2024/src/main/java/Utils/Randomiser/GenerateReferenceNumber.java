@@ -114,11 +114,14 @@ public class GenerateReferenceNumber {
      * @return the generated reference number.
      */
     public String generateReferenceNumber(char identifierLetter) {
-        String seedNumber = new GenerateUniqueNumber(this.referenceLength).toString();
-        char quarterLabel = getQuarterLabel(this.month.firstMonthOfQuarter());
-        identifierLetter = Character.toUpperCase(identifierLetter);
-
-        return String.valueOf(identifierLetter).concat(seedNumber).concat(String.valueOf(quarterLabel));
+        // A length left unset by the constructor still gets one digit, as GenerateUniqueNumber falls back to 1
+        int seedLength = Math.max(1, this.referenceLength);
+        char[] reference = new char[seedLength + 2];
+        reference[0] = Character.toUpperCase(identifierLetter);
+        ReferenceEngine.writeDigits(reference, 1, seedLength);
+        reference[reference.length - 1] = getQuarterLabel(this.month.firstMonthOfQuarter());
+
+        return new String(reference);
     }
 
     /**
@@ -127,23 +130,18 @@ public class GenerateReferenceNumber {
      * @return the generated reference number.
      */
     public String generateReferenceNumber() {
-        String seedNumber = new GenerateUniqueNumber(this.referenceLength).toString();
-        char quarterLabel = getQuarterLabel(this.month.firstMonthOfQuarter());
-        char identifierLetter = Character.toUpperCase(getRandomChar());
-
-        return String.valueOf(identifierLetter)
-                .concat(seedNumber)
-                .concat(String.valueOf(quarterLabel))
-                .trim();
+        return generateReferenceNumber(ReferenceEngine.randomIdentifierLetter());
     }
 
     /**
-     * Generates a random lowercase character.
+     * Returns a {@link ReferenceEngine} configured with this generator's month and reference length.
+     * Use it when many references are needed at once.
      *
-     * @return a random lowercase character.
+     * @return a new reference engine.
+     * @throws IllegalArgumentException if the reference length is 1 or less, which the engine does not support.
      */
-    private char getRandomChar() {
-        return (char) ('a' + new GenerateUniqueNumber(1).toInteger());
+    public ReferenceEngine toEngine() {
+        return new ReferenceEngine(this.month, this.referenceLength);
     }
 
     /**
@@ -153,7 +151,7 @@ public class GenerateReferenceNumber {
      * @return the quarter label ('A' for Q1, 'B' for Q2, 'C' for Q3, 'D' for Q4).
      * @throws IllegalArgumentException if the month is invalid.
      */
-    private static char getQuarterLabel(Month firstMonthOfQuarter) {
+    static char getQuarterLabel(Month firstMonthOfQuarter) {
         return switch (firstMonthOfQuarter) {
             case JANUARY -> 'A';
             case APRIL -> 'B';
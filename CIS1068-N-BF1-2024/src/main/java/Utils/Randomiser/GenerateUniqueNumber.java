@@ -1,7 +1,7 @@
 package Utils.Randomiser;
 
 import java.util.Arrays;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * The {@code GenerateUniqueNumber} class generates a unique numeric sequence of a specified length.
@@ -52,8 +52,7 @@ public class GenerateUniqueNumber {
      * @return a random digit between 0 and 9
      */
     private int generateUniqueDigit() {
-        Random random = new Random();
-        return random.nextInt(10);
+        return ThreadLocalRandom.current().nextInt(10);
     }
 
     /**
@@ -63,7 +62,7 @@ public class GenerateUniqueNumber {
         uniqueNumber = new UniqueNumberBuilder(this.sequenceLength);
 
         for (int i = 0; i < this.sequenceLength; i++)
-            uniqueNumber.append(generateUniqueDigit());
+            uniqueNumber.append((char) ('0' + generateUniqueDigit()));
     }
 
     /**
@@ -0,0 +1,333 @@
+/*
+ * Copyright (c) 2024
+ * Author: Mateusz Podeszwa
+ * All rights reserved.
+ */
+
+package Utils.Randomiser;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code NodeReferenceGenerator} class lets several JVMs issue reference numbers side by side without
+ * ever talking to each other, and without two of them ever issuing the same reference.
+ *
+ * <p>References keep the usual {@link GenerateReferenceNumber} shape, with the seed number partitioned as follows:
+ * <pre>
+ * [Identifier Letter][Node Id][Year][Sequence][Quarter Label]
+ * </pre>
+ * where:
+ * <ul>
+ *   <li><b>Node Id</b>: the fixed-width number of the JVM that issued the reference.</li>
+ *   <li><b>Year</b>: the last two digits of the year the reference was issued in.</li>
+ *   <li><b>Sequence</b>: a per-node counter that restarts at zero every quarter, optionally scrambled with a key
+ *   so that consecutive references do not look consecutive.</li>
+ *   <li><b>Quarter Label</b>: 'A' for Q1, 'B' for Q2, etc.</li>
+ * </ul>
+ *
+ * <p>Because node, year and quarter are part of every reference, two nodes (or the same node in two quarters)
+ * cannot collide, and within one node and quarter the sequence is taken from a single lock-free counter.
+ * Every node must be started with a distinct node id and the same layout and key. A node restarted within a quarter
+ * must resume its sequence, see {@link #NodeReferenceGenerator(int, int, int, long, Clock, long)}, or it would issue
+ * its earlier references again. {@link #decode(CharSequence)} recovers all the parts of a reference for routing and debugging.
+ *
+ * <p>
+ * <b>Example usage:</b>
+ * <pre>
+ * NodeReferenceGenerator generator = new NodeReferenceGenerator(7, 12);
+ * String reference = generator.next('A');                    // e.g. "A007240000031D"
+ * NodeReferenceGenerator.Decoded parts = generator.decode(reference);
+ * int node = parts.nodeId();                                  // 7
+ * </pre>
+ *
+ * @version 1.0
+ * @since 2024
+ */
+public final class NodeReferenceGenerator {
+
+    /**
+     * The number of digits used for the node id unless specified otherwise, allowing up to 1000 nodes.
+     */
+    public static final int DEFAULT_NODE_DIGITS = 3;
+
+    private static final int YEAR_DIGITS = 2;
+    private static final int SEQUENCE_BITS = 44;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    /**
+     * The parts of a decoded reference number.
+     *
+     * @param identifierLetter the identifier letter.
+     * @param nodeId the id of the node that issued the reference.
+     * @param year the full year the reference was issued in.
+     * @param quarterLabel the quarter label ('A' to 'D').
+     * @param sequence the position of the reference in its node's sequence for that quarter.
+     */
+    public record Decoded(char identifierLetter, int nodeId, int year, char quarterLabel, long sequence) {}
+
+    private final int nodeId;
+    private final int nodeDigits;
+    private final int seedLength;
+    private final int sequenceDigits;
+    private final long sequenceCapacity;
+    private final FeistelPermutation scrambler;
+    private final QuarterClock quarters;
+
+    /**
+     * Upper bits hold the quarter index, lower {@value #SEQUENCE_BITS} bits the next sequence number.
+     */
+    private final AtomicLong state = new AtomicLong();
+
+    /**
+     * Constructs a generator for the given node using {@value #DEFAULT_NODE_DIGITS} node digits, no scrambling and
+     * the system clock.
+     *
+     * @param nodeId the id of this node, unique among the cooperating JVMs.
+     * @param seedLength the number of digits in the seed.
+     * @throws IllegalArgumentException if the node id or seed length do not fit the layout.
+     */
+    public NodeReferenceGenerator(int nodeId, int seedLength) {
+        this(nodeId, DEFAULT_NODE_DIGITS, seedLength, 0L, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Constructs a generator with full control over its layout.
+     *
+     * @param nodeId the id of this node, unique among the cooperating JVMs.
+     * @param nodeDigits the number of digits reserved for the node id.
+     * @param seedLength the number of digits in the seed; at most 18.
+     * @param key the key used to scramble sequences, or {@code 0} to issue them in order.
+     * @param clock the clock that decides the current year and quarter.
+     * @throws IllegalArgumentException if the node id or seed length do not fit the layout.
+     */
+    public NodeReferenceGenerator(int nodeId, int nodeDigits, int seedLength, long key, Clock clock) {
+        this(nodeId, nodeDigits, seedLength, key, clock, 0L);
+    }
+
+    /**
+     * Constructs a generator that carries on the sequence of an earlier run of the same node.
+     * Persisting {@link #issued()} and passing it back here after a restart in the same quarter continues the
+     * never-repeating sequence. The value only applies to the quarter the generator is constructed in; the sequence
+     * restarts at zero as usual when the next quarter begins.
+     *
+     * @param nodeId the id of this node, unique among the cooperating JVMs.
+     * @param nodeDigits the number of digits reserved for the node id.
+     * @param seedLength the number of digits in the seed; at most 18.
+     * @param key the key used to scramble sequences, or {@code 0} to issue them in order.
+     * @param clock the clock that decides the current year and quarter.
+     * @param firstSequence the first sequence number to issue in the current quarter.
+     * @throws IllegalArgumentException if the node id or seed length do not fit the layout, or {@code firstSequence}
+     *     is out of range.
+     */
+    public NodeReferenceGenerator(int nodeId, int nodeDigits, int seedLength, long key, Clock clock, long firstSequence) {
+        if (nodeDigits < 1 || nodeDigits > 9)
+            throw new IllegalArgumentException("Node digits must be between 1 and 9: " + nodeDigits);
+        if (seedLength > 18 || seedLength - nodeDigits - YEAR_DIGITS < 2)
+            throw new IllegalArgumentException("Reference length " + seedLength + " leaves no room for a sequence after "
+                    + nodeDigits + " node digits and " + YEAR_DIGITS + " year digits");
+
+        this.nodeDigits = nodeDigits;
+        this.seedLength = seedLength;
+        this.sequenceDigits = seedLength - nodeDigits - YEAR_DIGITS;
+
+        long capacity = 1L;
+        for (int i = 0; i < this.sequenceDigits; i++)
+            capacity *= 10L;
+        this.sequenceCapacity = Math.min(capacity, SEQUENCE_MASK + 1);
+
+        long nodeCapacity = 1L;
+        for (int i = 0; i < nodeDigits; i++)
+            nodeCapacity *= 10L;
+        if (nodeId < 0 || nodeId >= nodeCapacity)
+            throw new IllegalArgumentException("Node id must be between 0 and " + (nodeCapacity - 1) + ": " + nodeId);
+
+        this.nodeId = nodeId;
+        this.scrambler = key == 0L ? null : new FeistelPermutation(this.sequenceCapacity, key);
+        this.quarters = new QuarterClock(clock);
+
+        if (firstSequence < 0 || firstSequence > this.sequenceCapacity)
+            throw new IllegalArgumentException("First sequence must be between 0 and " + this.sequenceCapacity + ": " + firstSequence);
+        if (firstSequence > 0)
+            this.state.set((this.quarters.quarterIndex() << SEQUENCE_BITS) | firstSequence);
+    }
+
+    /**
+     * Reads the node id from the {@code reference.node.id} system property.
+     *
+     * @param seedLength the number of digits in the seed.
+     * @return a generator for the configured node.
+     * @throws IllegalStateException if the property is missing or not a number.
+     */
+    public static NodeReferenceGenerator fromSystemProperty(int seedLength) {
+        String property = System.getProperty("reference.node.id");
+        if (property == null)
+            throw new IllegalStateException("System property reference.node.id is not set");
+        try {
+            return new NodeReferenceGenerator(Integer.parseInt(property.trim()), seedLength);
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("System property reference.node.id is not a number: " + property, e);
+        }
+    }
+
+    /**
+     * Returns the id of this node.
+     *
+     * @return the node id.
+     */
+    public int getNodeId() {
+        return this.nodeId;
+    }
+
+    /**
+     * Returns the number of digits in the seed part of each reference.
+     *
+     * @return the seed length.
+     */
+    public int getSeedLength() {
+        return this.seedLength;
+    }
+
+    /**
+     * Returns how many references one node can issue per quarter.
+     *
+     * @return the sequence capacity.
+     */
+    public long getSequenceCapacity() {
+        return this.sequenceCapacity;
+    }
+
+    /**
+     * Returns how many references this node has issued in the current quarter, including any resumed from an earlier run.
+     * Persist it to resume the sequence after a restart.
+     *
+     * @return the number of references issued this quarter.
+     */
+    public long issued() {
+        long observed = this.state.get();
+        if ((observed >>> SEQUENCE_BITS) < this.quarters.quarterIndex())
+            return 0L;
+        return Math.min(observed & SEQUENCE_MASK, this.sequenceCapacity);
+    }
+
+    /**
+     * Writes the next reference for an identifier letter into {@code destination}.
+     *
+     * @param identifierLetter the identifier letter; it is upper-cased before being written.
+     * @param destination the buffer to write into.
+     * @param offset the index of the first character to write.
+     * @return the index just past the last character written.
+     * @throws IndexOutOfBoundsException if the buffer is too small.
+     * @throws IllegalStateException if this node has used up its sequence for the current quarter.
+     */
+    public int write(char identifierLetter, char[] destination, int offset) {
+        if (offset < 0 || destination.length - offset < this.seedLength + 2)
+            throw new IndexOutOfBoundsException("Buffer of length " + destination.length
+                    + " cannot hold a reference of length " + (this.seedLength + 2) + " at offset " + offset);
+
+        long issued = nextState();
+        long quarterIndex = issued >>> SEQUENCE_BITS;
+        long sequence = issued & SEQUENCE_MASK;
+        if (this.scrambler != null)
+            sequence = this.scrambler.apply(sequence, this.nodeId);
+
+        int position = offset + this.seedLength;
+        position = writeDigits(destination, position, sequence, this.sequenceDigits);
+        position = writeDigits(destination, position, (quarterIndex / 4) % 100, YEAR_DIGITS);
+        writeDigits(destination, position, this.nodeId, this.nodeDigits);
+
+        destination[offset] = Character.toUpperCase(identifierLetter);
+        destination[offset + this.seedLength + 1] = (char) ('A' + (int) (quarterIndex % 4));
+        return offset + this.seedLength + 2;
+    }
+
+    /**
+     * Generates the next reference number for an identifier letter.
+     *
+     * @param identifierLetter the identifier letter.
+     * @return the generated reference number.
+     * @throws IllegalStateException if this node has used up its sequence for the current quarter.
+     */
+    public String next(char identifierLetter) {
+        char[] reference = new char[this.seedLength + 2];
+        write(identifierLetter, reference, 0);
+        return new String(reference);
+    }
+
+    /**
+     * Splits a reference issued by any node sharing this generator's layout and key back into its parts.
+     *
+     * @param reference the reference number.
+     * @return the decoded parts.
+     * @throws IllegalArgumentException if the reference does not match this generator's layout.
+     */
+    public Decoded decode(CharSequence reference) {
+        if (reference == null || reference.length() != this.seedLength + 2)
+            throw new IllegalArgumentException("Reference must be " + (this.seedLength + 2) + " characters long: " + reference);
+
+        char quarterLabel = reference.charAt(this.seedLength + 1);
+        if (quarterLabel < 'A' || quarterLabel > 'D')
+            throw new IllegalArgumentException("Invalid quarter label in reference: " + reference);
+
+        int position = 1;
+        long node = readDigits(reference, position, this.nodeDigits);
+        position += this.nodeDigits;
+        long year = readDigits(reference, position, YEAR_DIGITS);
+        position += YEAR_DIGITS;
+        long sequence = readDigits(reference, position, this.sequenceDigits);
+        if (sequence >= this.sequenceCapacity)
+            throw new IllegalArgumentException("Sequence out of range in reference: " + reference);
+        if (this.scrambler != null)
+            sequence = this.scrambler.invert(sequence, node);
+
+        return new Decoded(reference.charAt(0), (int) node, 2000 + (int) year, quarterLabel, sequence);
+    }
+
+    /**
+     * Atomically takes the next sequence number, restarting the sequence when the quarter changes.
+     * If the clock moves backwards the sequence carries on in the latest quarter seen, so numbers are never reused.
+     */
+    private long nextState() {
+        long currentQuarter = this.quarters.quarterIndex();
+        while (true) {
+            long observed = this.state.get();
+            long observedQuarter = observed >>> SEQUENCE_BITS;
+            long updated;
+            if (observedQuarter < currentQuarter) {
+                updated = (currentQuarter << SEQUENCE_BITS) | 1L;
+                if (this.state.compareAndSet(observed, updated))
+                    return currentQuarter << SEQUENCE_BITS;
+            } else {
+                if ((observed & SEQUENCE_MASK) >= this.sequenceCapacity)
+                    throw new IllegalStateException("Node " + this.nodeId + " has issued all " + this.sequenceCapacity
+                            + " references for quarter " + (char) ('A' + (int) (observedQuarter % 4)));
+                if (this.state.compareAndSet(observed, observed + 1))
+                    return observed;
+            }
+        }
+    }
+
+    /**
+     * Writes {@code digits} decimal digits of {@code value} right to left, ending at {@code position}.
+     *
+     * @return the position just before the first digit written.
+     */
+    private static int writeDigits(char[] destination, int position, long value, int digits) {
+        for (int i = 0; i < digits; i++) {
+            destination[position--] = (char) ('0' + (int) (value % 10));
+            value /= 10;
+        }
+        return position;
+    }
+
+    private static long readDigits(CharSequence source, int offset, int digits) {
+        long value = 0;
+        for (int i = offset; i < offset + digits; i++) {
+            char c = source.charAt(i);
+            if (c < '0' || c > '9')
+                throw new IllegalArgumentException("Non-digit character '" + c + "' in reference: " + source);
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
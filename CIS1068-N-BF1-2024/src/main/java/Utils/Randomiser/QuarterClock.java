@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2024
+ * Author: Mateusz Podeszwa
+ * All rights reserved.
+ */
+
+package Utils.Randomiser;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+/**
+ * The {@code QuarterClock} class tells which calendar quarter a {@link Clock} is currently in.
+ *
+ * <p>It remembers the instants at which the current quarter starts and ends, so asking is a clock read and two
+ * comparisons; the calendar is only consulted when the clock crosses a quarter boundary. Quarter boundaries are
+ * midnight at the start of January, April, July and October in the clock's zone.
+ *
+ * <p>Instances are thread safe. Threads racing across a boundary may each consult the calendar, which is harmless.
+ *
+ * @version 1.0
+ * @since 2024
+ */
+final class QuarterClock {
+
+    /**
+     * The quarter last seen, together with the instants at which it starts and ends.
+     */
+    private record Window(long quarterIndex, long startMillis, long endMillis) {}
+
+    private final Clock clock;
+    private volatile Window window = new Window(-1, 0, 0);
+
+    /**
+     * Constructs a quarter clock reading the given clock.
+     *
+     * @param clock the clock that decides the current year and quarter.
+     */
+    QuarterClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Returns {@code year * 4 + quarter}, with quarters numbered from 0, for the clock's current instant.
+     *
+     * @return the current quarter index.
+     */
+    long quarterIndex() {
+        long now = this.clock.millis();
+        Window current = this.window;
+        if (now >= current.startMillis() && now < current.endMillis())
+            return current.quarterIndex();
+
+        LocalDate today = LocalDate.now(this.clock);
+        LocalDate start = today.withMonth(today.getMonth().firstMonthOfQuarter().getValue()).withDayOfMonth(1);
+        LocalDate end = start.plusMonths(3);
+        long quarterIndex = today.getYear() * 4L + (start.getMonthValue() - 1) / 3;
+        this.window = new Window(quarterIndex, toEpochMillis(start), toEpochMillis(end));
+        return quarterIndex;
+    }
+
+    /**
+     * Returns the quarter label ('A' to 'D') for the clock's current instant.
+     *
+     * @return the current quarter label.
+     */
+    char quarterLabel() {
+        return (char) ('A' + Math.floorMod(quarterIndex(), 4));
+    }
+
+    private long toEpochMillis(LocalDate date) {
+        ZoneOffset offset = this.clock.getZone().getRules().getOffset(date.atStartOfDay());
+        return date.atStartOfDay().toInstant(offset).toEpochMilli();
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2024
+ * Author: Mateusz Podeszwa
+ * All rights reserved.
+ */
+
+package Utils.Randomiser;
+
+import java.time.Month;
+
+/**
+ * The {@code ReferenceCodec} class packs a reference number into a single {@code long} and back.
+ * Hot paths can then hash, compare and store references as primitives, and only turn them into text
+ * at the display edge, in the same way {@link UniqueNumberBuilder} turns its digits into a {@code String}.
+ *
+ * <p>The reference number format is the same as {@link GenerateReferenceNumber}:
+ * <pre>
+ * [Identifier Letter][Seed Number][Quarter Label]
+ * </pre>
+ * and the packed value is the mixed-radix number
+ * <pre>
+ * ((letter * 4) + quarter) * 10^seedLength + seed
+ * </pre>
+ * Every codec has a fixed seed length, so leading zeros survive the round trip and the natural order of packed
+ * values matches the alphabetical order of the references. Packed values are never negative.
+ *
+ * <p>A {@code long} has room for every identifier letter with seeds of up to 16 digits ({@link #forLength(int)}).
+ * Longer seeds, such as the 18 digit bank account numbers, fit only when the identifier letter is fixed
+ * ({@link #forLetter(char, int)}), in which case the letter is not stored at all.
+ *
+ * <p>
+ * <b>Example usage:</b>
+ * <pre>
+ * ReferenceCodec codec = ReferenceCodec.forLength(12);
+ * long key = codec.encode("A093381264510B");
+ * char letter = codec.letterOf(key);                  // 'A'
+ * String text = codec.toString(key);                  // "A093381264510B"
+ * </pre>
+ *
+ * @version 1.0
+ * @since 2024
+ */
+public final class ReferenceCodec {
+
+    /**
+     * Returned by {@link #tryEncode(CharSequence)} when the text is not a valid reference for the codec.
+     */
+    public static final long INVALID = -1L;
+
+    private static final int LETTERS = 26;
+    private static final int QUARTERS = 4;
+
+    private final int seedLength;
+    private final long seedCapacity;
+    private final char fixedLetter;
+
+    private ReferenceCodec(int seedLength, char fixedLetter) {
+        long capacity = 1L;
+        for (int i = 0; i < seedLength; i++)
+            capacity *= 10L;
+        this.seedLength = seedLength;
+        this.seedCapacity = capacity;
+        this.fixedLetter = fixedLetter;
+    }
+
+    /**
+     * Creates a codec for references with any identifier letter.
+     *
+     * @param seedLength the number of digits in the seed; must be between 2 and 16.
+     * @return the codec.
+     * @throws IllegalArgumentException if {@code seedLength} is out of range.
+     */
+    public static ReferenceCodec forLength(int seedLength) {
+        if (seedLength <= 1 || seedLength > 16)
+            throw new IllegalArgumentException("Reference length must be between 2 and 16: " + seedLength);
+        return new ReferenceCodec(seedLength, '\0');
+    }
+
+    /**
+     * Creates a codec for references that always start with the same identifier letter.
+     *
+     * @param identifierLetter the identifier letter shared by every reference ('A' to 'Z', case-insensitive).
+     * @param seedLength the number of digits in the seed; must be between 2 and 18.
+     * @return the codec.
+     * @throws IllegalArgumentException if the letter or {@code seedLength} is out of range.
+     */
+    public static ReferenceCodec forLetter(char identifierLetter, int seedLength) {
+        if (seedLength <= 1 || seedLength > 18)
+            throw new IllegalArgumentException("Reference length must be between 2 and 18: " + seedLength);
+        char letter = Character.toUpperCase(identifierLetter);
+        if (letter < 'A' || letter > 'Z')
+            throw new IllegalArgumentException("Identifier letter must be between A and Z: " + identifierLetter);
+        return new ReferenceCodec(seedLength, letter);
+    }
+
+    /**
+     * Returns the quarter label for a month, as used in every reference number.
+     *
+     * @param month the month.
+     * @return the quarter label ('A' for Q1, 'B' for Q2, 'C' for Q3, 'D' for Q4).
+     */
+    public static char quarterLabel(Month month) {
+        return GenerateReferenceNumber.getQuarterLabel(month.firstMonthOfQuarter());
+    }
+
+    /**
+     * Returns the number of digits in the seed part of each reference.
+     *
+     * @return the seed length.
+     */
+    public int getSeedLength() {
+        return this.seedLength;
+    }
+
+    /**
+     * Returns the total number of characters in a reference: identifier letter, seed and quarter label.
+     *
+     * @return the full reference length.
+     */
+    public int referenceLength() {
+        return this.seedLength + 2;
+    }
+
+    /**
+     * Packs the parts of a reference into a {@code long}.
+     *
+     * @param identifierLetter the identifier letter ('A' to 'Z', case-insensitive).
+     * @param seed the seed number, between 0 and {@code 10^seedLength - 1}.
+     * @param quarterLabel the quarter label ('A' to 'D').
+     * @return the packed reference.
+     * @throws IllegalArgumentException if any part is out of range.
+     */
+    public long encode(char identifierLetter, long seed, char quarterLabel) {
+        int letter = Character.toUpperCase(identifierLetter) - 'A';
+        int quarter = quarterLabel - 'A';
+        if (letter < 0 || letter >= LETTERS || (this.fixedLetter != '\0' && letter != this.fixedLetter - 'A'))
+            throw new IllegalArgumentException("Identifier letter not supported by this codec: " + identifierLetter);
+        if (quarter < 0 || quarter >= QUARTERS)
+            throw new IllegalArgumentException("Quarter label must be between A and D: " + quarterLabel);
+        if (seed < 0 || seed >= this.seedCapacity)
+            throw new IllegalArgumentException("Seed must be between 0 and " + (this.seedCapacity - 1) + ": " + seed);
+        return pack(letter, quarter, seed);
+    }
+
+    /**
+     * Packs a reference number into a {@code long}.
+     *
+     * @param reference the reference number, e.g. "A093381264510B".
+     * @return the packed reference.
+     * @throws IllegalArgumentException if the text is not a valid reference for this codec.
+     */
+    public long encode(CharSequence reference) {
+        long key = tryEncode(reference);
+        if (key == INVALID)
+            throw new IllegalArgumentException("Not a valid " + referenceLength() + " character reference: " + reference);
+        return key;
+    }
+
+    /**
+     * Packs a reference number into a {@code long} without throwing or allocating.
+     * The identifier letter may be in either case; the quarter label must be upper case.
+     *
+     * @param reference the reference number, e.g. "A093381264510B".
+     * @return the packed reference, or {@link #INVALID} if the text is not a valid reference for this codec.
+     */
+    public long tryEncode(CharSequence reference) {
+        if (reference == null || reference.length() != referenceLength())
+            return INVALID;
+
+        int letter = Character.toUpperCase(reference.charAt(0)) - 'A'; // Case-insensitive, as in encode(char, long, char)
+        int quarter = reference.charAt(this.seedLength + 1) - 'A';
+        if (letter < 0 || letter >= LETTERS || (this.fixedLetter != '\0' && letter != this.fixedLetter - 'A'))
+            return INVALID;
+        if (quarter < 0 || quarter >= QUARTERS)
+            return INVALID;
+
+        long seed = 0;
+        for (int i = 1; i <= this.seedLength; i++) {
+            char c = reference.charAt(i);
+            if (c < '0' || c > '9')
+                return INVALID;
+            seed = seed * 10 + (c - '0');
+        }
+        return pack(letter, quarter, seed);
+    }
+
+    /**
+     * Returns the identifier letter of a packed reference.
+     *
+     * @param key the packed reference.
+     * @return the identifier letter.
+     */
+    public char letterOf(long key) {
+        if (this.fixedLetter != '\0')
+            return this.fixedLetter;
+        return (char) ('A' + (int) (key / this.seedCapacity / QUARTERS));
+    }
+
+    /**
+     * Returns the quarter label of a packed reference.
+     *
+     * @param key the packed reference.
+     * @return the quarter label ('A' to 'D').
+     */
+    public char quarterOf(long key) {
+        return (char) ('A' + (int) (key / this.seedCapacity % QUARTERS));
+    }
+
+    /**
+     * Returns the seed number of a packed reference.
+     *
+     * @param key the packed reference.
+     * @return the seed number.
+     */
+    public long seedOf(long key) {
+        return key % this.seedCapacity;
+    }
+
+    /**
+     * Writes the text form of a packed reference into {@code destination}.
+     *
+     * @param key the packed reference.
+     * @param destination the buffer to write into.
+     * @param offset the index of the first character to write.
+     * @return the index just past the last character written.
+     * @throws IndexOutOfBoundsException if the buffer is too small.
+     */
+    public int write(long key, char[] destination, int offset) {
+        if (offset < 0 || destination.length - offset < referenceLength())
+            throw new IndexOutOfBoundsException("Buffer of length " + destination.length
+                    + " cannot hold a reference of length " + referenceLength() + " at offset " + offset);
+
+        long seed = seedOf(key);
+        destination[offset] = letterOf(key);
+        for (int i = this.seedLength; i >= 1; i--) {
+            destination[offset + i] = (char) ('0' + (int) (seed % 10));
+            seed /= 10;
+        }
+        destination[offset + this.seedLength + 1] = quarterOf(key);
+        return offset + referenceLength();
+    }
+
+    /**
+     * Appends the text form of a packed reference to {@code builder}.
+     *
+     * @param key the packed reference.
+     * @param builder the builder to append to.
+     * @return {@code builder}, for chaining.
+     */
+    public StringBuilder appendTo(long key, StringBuilder builder) {
+        long seed = seedOf(key);
+        builder.append(letterOf(key));
+        for (long divisor = this.seedCapacity / 10; divisor > 0; divisor /= 10)
+            builder.append((char) ('0' + (int) (seed / divisor % 10)));
+        return builder.append(quarterOf(key));
+    }
+
+    /**
+     * Returns the text form of a packed reference.
+     *
+     * @param key the packed reference.
+     * @return the reference number.
+     */
+    public String toString(long key) {
+        char[] reference = new char[referenceLength()];
+        write(key, reference, 0);
+        return new String(reference);
+    }
+
+    private long pack(int letter, int quarter, long seed) {
+        int prefix = this.fixedLetter != '\0' ? quarter : letter * QUARTERS + quarter;
+        return prefix * this.seedCapacity + seed;
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2024
+ * Author: Mateusz Podeszwa
+ * All rights reserved.
+ */
+
+package Utils.Randomiser;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The {@code ReferenceEngine} class is a low-allocation alternative to {@link GenerateReferenceNumber}.
+ * References follow the same identifier letter, seed and quarter label format, but the digits come from the calling
+ * thread's {@link ThreadLocalRandom} and are written straight into character or byte buffers supplied by the caller.
+ *
+ * <p>The format of the generated reference number is as follows:
+ * <pre>
+ * [Identifier Letter][Seed Number][Quarter Label]
+ * </pre>
+ *
+ * <p>Up to eighteen digits are taken from a single random {@code long}, so a twelve digit transaction reference
+ * costs one call to the generator instead of twelve new {@link java.util.Random} objects. The quarter label is resolved
+ * once, when the engine is constructed. An engine holds no mutable state and can be shared freely between threads.
+ *
+ * <p>
+ * <b>Example usage:</b>
+ * <pre>
+ * ReferenceEngine engine = new ReferenceEngine(Month.MAY, 12);
+ * String single = engine.generate('A');        // e.g. "A093381264510B"
+ *
+ * char[][] batch = engine.newBuffers(1_000_000);
+ * engine.fill('R', batch);                     // refills the same buffers, no further allocation
+ * </pre>
+ *
+ * @version 1.0
+ * @since 2024
+ */
+public final class ReferenceEngine {
+
+    /**
+     * The largest number of digits that can be drawn from one random {@code long}.
+     */
+    private static final int DIGITS_PER_DRAW = 18;
+
+    /**
+     * Powers of ten, {@code POWERS_OF_TEN[i] == 10^i}, used to bound each random draw.
+     */
+    private static final long[] POWERS_OF_TEN = new long[DIGITS_PER_DRAW + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1L;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++)
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10L;
+    }
+
+    /**
+     * Per-thread scratch buffer used by {@link #generate(char)} so that only the resulting {@code String} is allocated.
+     */
+    private final ThreadLocal<char[]> scratch;
+
+    private final int seedLength;
+    private final char quarterLabel;
+
+    /**
+     * Constructs a {@code ReferenceEngine} for the given month and seed length.
+     *
+     * @param month the month whose quarter label is appended to every reference.
+     * @param seedLength the number of digits in the seed; must be greater than 1.
+     * @throws IllegalArgumentException if {@code seedLength} is less than or equal to 1.
+     */
+    public ReferenceEngine(Month month, int seedLength) {
+        if (seedLength <= 1)
+            throw new IllegalArgumentException("Reference length must be greater than 1.");
+
+        this.seedLength = seedLength;
+        this.quarterLabel = GenerateReferenceNumber.getQuarterLabel(month.firstMonthOfQuarter());
+        this.scratch = ThreadLocal.withInitial(() -> new char[referenceLength()]);
+    }
+
+    /**
+     * Constructs a {@code ReferenceEngine} with the default seed length of 4 using the current month.
+     */
+    public ReferenceEngine() {
+        this(LocalDate.now().getMonth(), 4);
+    }
+
+    /**
+     * Returns the number of digits in the seed part of each reference.
+     *
+     * @return the seed length.
+     */
+    public int getSeedLength() {
+        return this.seedLength;
+    }
+
+    /**
+     * Returns the quarter label appended to every reference.
+     *
+     * @return the quarter label ('A' for Q1, 'B' for Q2, 'C' for Q3, 'D' for Q4).
+     */
+    public char getQuarterLabel() {
+        return this.quarterLabel;
+    }
+
+    /**
+     * Returns the total number of characters in a reference: identifier letter, seed and quarter label.
+     *
+     * @return the full reference length.
+     */
+    public int referenceLength() {
+        return this.seedLength + 2;
+    }
+
+    /**
+     * Writes a single reference into {@code destination} starting at {@code offset}.
+     *
+     * @param identifierLetter the identifier letter; it is upper-cased before being written.
+     * @param destination the buffer to write into.
+     * @param offset the index of the first character to write.
+     * @return the index just past the last character written.
+     * @throws IndexOutOfBoundsException if the buffer is too small.
+     */
+    public int write(char identifierLetter, char[] destination, int offset) {
+        if (offset < 0 || destination.length - offset < referenceLength())
+            throw new IndexOutOfBoundsException("Buffer of length " + destination.length
+                    + " cannot hold a reference of length " + referenceLength() + " at offset " + offset);
+
+        destination[offset] = Character.toUpperCase(identifierLetter);
+        writeDigits(destination, offset + 1, this.seedLength);
+        destination[offset + this.seedLength + 1] = this.quarterLabel;
+        return offset + referenceLength();
+    }
+
+    /**
+     * Fills {@code count} characters of {@code destination}, starting at {@code offset}, with random decimal digits.
+     * Digits are produced right to left, up to eighteen per draw from the calling thread's generator.
+     *
+     * @param destination the buffer to write into.
+     * @param offset the index of the first digit.
+     * @param count the number of digits to write.
+     */
+    static void writeDigits(char[] destination, int offset, int count) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int position = offset + count - 1;
+        int remaining = count;
+        while (remaining > 0) {
+            int digits = Math.min(remaining, DIGITS_PER_DRAW);
+            long draw = random.nextLong(POWERS_OF_TEN[digits]);
+            for (int i = 0; i < digits; i++) {
+                destination[position--] = (char) ('0' + (int) (draw % 10));
+                draw /= 10;
+            }
+            remaining -= digits;
+        }
+    }
+
+    /**
+     * Writes a single reference into {@code destination} as US-ASCII bytes, starting at {@code offset}.
+     * This is intended for callers that stream references straight into files or network buffers.
+     *
+     * @param identifierLetter the identifier letter; it is upper-cased before being written.
+     * @param destination the buffer to write into.
+     * @param offset the index of the first byte to write.
+     * @return the index just past the last byte written.
+     * @throws IndexOutOfBoundsException if the buffer is too small.
+     */
+    public int write(char identifierLetter, byte[] destination, int offset) {
+        char[] buffer = this.scratch.get();
+        write(identifierLetter, buffer, 0);
+        if (offset < 0 || destination.length - offset < buffer.length)
+            throw new IndexOutOfBoundsException("Buffer of length " + destination.length
+                    + " cannot hold a reference of length " + buffer.length + " at offset " + offset);
+
+        for (int i = 0; i < buffer.length; i++)
+            destination[offset + i] = (byte) buffer[i];
+        return offset + buffer.length;
+    }
+
+    /**
+     * Generates a reference number using the specified identifier letter.
+     * The only allocation is the returned {@code String}.
+     *
+     * @param identifierLetter the letter to be used as an identifier in the reference number.
+     * @return the generated reference number.
+     */
+    public String generate(char identifierLetter) {
+        char[] buffer = this.scratch.get();
+        write(identifierLetter, buffer, 0);
+        return new String(buffer);
+    }
+
+    /**
+     * Generates a reference number using a randomly generated identifier letter.
+     *
+     * @return the generated reference number.
+     */
+    public String generate() {
+        return generate(randomIdentifierLetter());
+    }
+
+    /**
+     * Generates {@code n} reference numbers sharing the specified identifier letter.
+     *
+     * @param identifierLetter the letter to be used as an identifier in every reference number.
+     * @param n the number of references to generate.
+     * @return an array of {@code n} generated reference numbers.
+     * @throws IllegalArgumentException if {@code n} is negative.
+     */
+    public String[] generate(char identifierLetter, int n) {
+        if (n < 0)
+            throw new IllegalArgumentException("Number of references cannot be negative: " + n);
+
+        String[] references = new String[n];
+        for (int i = 0; i < n; i++)
+            references[i] = generate(identifierLetter);
+        return references;
+    }
+
+    /**
+     * Generates {@code n} reference numbers, each with a randomly generated identifier letter.
+     *
+     * @param n the number of references to generate.
+     * @return an array of {@code n} generated reference numbers.
+     * @throws IllegalArgumentException if {@code n} is negative.
+     */
+    public String[] generate(int n) {
+        if (n < 0)
+            throw new IllegalArgumentException("Number of references cannot be negative: " + n);
+
+        String[] references = new String[n];
+        for (int i = 0; i < n; i++)
+            references[i] = generate(randomIdentifierLetter());
+        return references;
+    }
+
+    /**
+     * Allocates {@code n} buffers, each sized to hold exactly one reference.
+     * The buffers can be refilled any number of times with {@link #fill(char, char[][])}.
+     *
+     * @param n the number of buffers.
+     * @return the allocated buffers.
+     */
+    public char[][] newBuffers(int n) {
+        return new char[n][referenceLength()];
+    }
+
+    /**
+     * Overwrites every buffer in {@code destinations} with a fresh reference sharing the specified identifier letter.
+     * No memory is allocated.
+     *
+     * @param identifierLetter the letter to be used as an identifier in every reference number.
+     * @param destinations the buffers to fill; each must be at least {@link #referenceLength()} long.
+     */
+    public void fill(char identifierLetter, char[][] destinations) {
+        for (char[] destination : destinations)
+            write(identifierLetter, destination, 0);
+    }
+
+    /**
+     * Overwrites every buffer in {@code destinations} with a fresh reference,
+     * each with a randomly generated identifier letter. No memory is allocated.
+     *
+     * @param destinations the buffers to fill; each must be at least {@link #referenceLength()} long.
+     */
+    public void fill(char[][] destinations) {
+        for (char[] destination : destinations)
+            write(randomIdentifierLetter(), destination, 0);
+    }
+
+    /**
+     * Returns a random identifier letter from the same range {@link GenerateReferenceNumber} uses ('A' to 'J').
+     *
+     * @return a random uppercase identifier letter.
+     */
+    static char randomIdentifierLetter() {
+        return (char) ('A' + ThreadLocalRandom.current().nextInt(10));
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2024
+ * Author: Mateusz Podeszwa
+ * All rights reserved.
+ */
+
+package Utils.Randomiser;
+
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The {@code ReferencePool} class keeps a stock of ready-made packed reference numbers (see {@link ReferenceCodec})
+ * for each identifier letter, so that callers can take one in a few nanoseconds instead of generating it themselves.
+ *
+ * <p>Each identifier letter has its own bounded, lock-free ring buffer. A daemon thread tops the buffers up from a
+ * {@link Source} when they drop to half full, and at least every 50 milliseconds. If a caller finds a buffer empty
+ * it does not wait: it generates a reference synchronously from the same source and the event is counted in
+ * {@link #getFallbacks()}.
+ *
+ * <p>References are generated ahead of time, so they carry the quarter label of the moment they were generated.
+ * Given a {@link ReferenceCodec} and a {@link Clock}, the pool checks the quarter label of every reference it hands out
+ * and discards a letter's stock as soon as it belongs to an earlier quarter, so a pool left idle across a quarter
+ * boundary never hands out a reference labelled with the previous quarter. Without them, call {@link #drain()} at the
+ * start of a new quarter if that matters.
+ *
+ * <p>
+ * <b>Example usage:</b>
+ * <pre>
+ * UniqueReferenceAllocator allocator = new UniqueReferenceAllocator(12);
+ * ReferenceCodec codec = ReferenceCodec.forLength(12);
+ * ReferencePool pool = new ReferencePool(letter -&gt; codec.encode(letter, allocator.nextSeed(letter, 'B'), 'B'),
+ *                                        1024, 'A', 'R');
+ * // Or, to have references from an earlier quarter discarded automatically:
+ * ReferencePool quarterly = new ReferencePool(source, codec, Clock.systemDefaultZone(), 1024, 'A', 'R');
+ * long reference = pool.next('A');
+ * </pre>
+ *
+ * @version 1.0
+ * @since 2024
+ */
+public final class ReferencePool implements AutoCloseable {
+
+    /**
+     * Generates one packed reference for an identifier letter. Implementations must be thread safe,
+     * since both the refill thread and callers falling back to synchronous generation use them.
+     * Returned references must not be negative, as every {@link ReferenceCodec} value is.
+     */
+    @FunctionalInterface
+    public interface Source {
+        long next(char identifierLetter);
+    }
+
+    /**
+     * How long the refill thread sleeps when every buffer is above its low watermark and nobody wakes it.
+     */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final Source source;
+    private final ReferenceCodec codec; // null when quarter labels are not checked
+    private final QuarterClock quarters; // null when quarter labels are not checked
+    private final Ring[] rings = new Ring[26];
+    private final char[] letters;
+    private final int lowWatermark;
+    private final Thread refiller;
+    private volatile boolean closed;
+
+    private final LongAdder taken = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final AtomicLong refilled = new AtomicLong();
+    private final long startedNanos = System.nanoTime();
+
+    /**
+     * Constructs a pool and starts its refill thread.
+     *
+     * @param source the generator of references.
+     * @param capacityPerLetter the number of references kept ready for each letter; rounded up to a power of two.
+     * @param identifierLetters the identifier letters to keep stock of ('A' to 'Z', case-insensitive).
+     * @throws IllegalArgumentException if the capacity is not positive or a letter is invalid.
+     */
+    public ReferencePool(Source source, int capacityPerLetter, char... identifierLetters) {
+        this(source, null, null, capacityPerLetter, identifierLetters);
+    }
+
+    /**
+     * Constructs a pool that never hands out a reference from an earlier quarter, and starts its refill thread.
+     *
+     * @param source the generator of references.
+     * @param codec the codec the source packs references with, used to read their quarter label.
+     * @param clock the clock that decides the current quarter.
+     * @param capacityPerLetter the number of references kept ready for each letter; rounded up to a power of two.
+     * @param identifierLetters the identifier letters to keep stock of ('A' to 'Z', case-insensitive).
+     * @throws IllegalArgumentException if the capacity is not positive or a letter is invalid.
+     */
+    public ReferencePool(Source source, ReferenceCodec codec, Clock clock, int capacityPerLetter, char... identifierLetters) {
+        if ((codec == null) != (clock == null))
+            throw new IllegalArgumentException("A codec and a clock must be given together");
+        if (capacityPerLetter < 2 || capacityPerLetter > (1 << 24))
+            throw new IllegalArgumentException("Capacity must be between 2 and 2^24: " + capacityPerLetter);
+
+        int capacity = Integer.highestOneBit(capacityPerLetter - 1) << 1;
+        this.source = source;
+        this.codec = codec;
+        this.quarters = clock == null ? null : new QuarterClock(clock);
+        this.letters = new char[identifierLetters.length];
+        for (int i = 0; i < identifierLetters.length; i++) {
+            char letter = Character.toUpperCase(identifierLetters[i]);
+            if (letter < 'A' || letter > 'Z')
+                throw new IllegalArgumentException("Identifier letter must be between A and Z: " + identifierLetters[i]);
+            this.letters[i] = letter;
+            this.rings[letter - 'A'] = new Ring(capacity);
+        }
+        this.lowWatermark = capacity / 2;
+
+        this.refiller = new Thread(this::refillLoop, "reference-pool-refill");
+        this.refiller.setDaemon(true);
+        this.refiller.start();
+    }
+
+    /**
+     * Takes a ready reference for an identifier letter, or generates one synchronously if none is ready.
+     *
+     * @param identifierLetter the identifier letter.
+     * @return a packed reference.
+     * @throws IllegalArgumentException if the pool does not keep stock of this letter.
+     */
+    public long next(char identifierLetter) {
+        Ring ring = ringOf(identifierLetter);
+        this.taken.increment();
+
+        long reference = ring.poll();
+        if (reference != Ring.EMPTY && this.codec != null && this.codec.quarterOf(reference) != this.quarters.quarterLabel()) {
+            // The whole ring was filled before the quarter changed, so none of it can be used
+            while (ring.poll() != Ring.EMPTY) {
+                // Discard.
+            }
+            reference = Ring.EMPTY;
+        }
+        if (reference != Ring.EMPTY) {
+            if (ring.size() == this.lowWatermark)
+                LockSupport.unpark(this.refiller);
+            return reference;
+        }
+
+        this.fallbacks.increment();
+        LockSupport.unpark(this.refiller);
+        return this.source.next(Character.toUpperCase(identifierLetter));
+    }
+
+    /**
+     * Returns how many references are ready for an identifier letter.
+     *
+     * @param identifierLetter the identifier letter.
+     * @return the current depth of that letter's buffer.
+     */
+    public int getDepth(char identifierLetter) {
+        return ringOf(identifierLetter).size();
+    }
+
+    /**
+     * Returns how many references have been taken from the pool, including fallbacks.
+     *
+     * @return the number of references taken.
+     */
+    public long getTaken() {
+        return this.taken.sum();
+    }
+
+    /**
+     * Returns how many times a caller found a buffer empty and generated a reference itself.
+     *
+     * @return the number of synchronous fallbacks.
+     */
+    public long getFallbacks() {
+        return this.fallbacks.sum();
+    }
+
+    /**
+     * Returns how many references the refill thread has generated.
+     *
+     * @return the number of references refilled.
+     */
+    public long getRefilled() {
+        return this.refilled.get();
+    }
+
+    /**
+     * Returns the average number of references the refill thread has generated per second since the pool started.
+     *
+     * @return the refill rate.
+     */
+    public double getRefillRatePerSecond() {
+        long elapsed = System.nanoTime() - this.startedNanos;
+        return elapsed <= 0 ? 0.0 : this.refilled.get() * 1e9 / elapsed;
+    }
+
+    /**
+     * Discards every ready reference; the refill thread then generates fresh ones.
+     */
+    public void drain() {
+        for (char letter : this.letters) {
+            Ring ring = this.rings[letter - 'A'];
+            while (ring.poll() != Ring.EMPTY) {
+                // Discard.
+            }
+        }
+        LockSupport.unpark(this.refiller);
+    }
+
+    /**
+     * Stops the refill thread. References already in the pool can still be taken, after which every call falls back
+     * to synchronous generation.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        LockSupport.unpark(this.refiller);
+    }
+
+    private Ring ringOf(char identifierLetter) {
+        int index = Character.toUpperCase(identifierLetter) - 'A';
+        Ring ring = index >= 0 && index < this.rings.length ? this.rings[index] : null;
+        if (ring == null)
+            throw new IllegalArgumentException("Reference pool does not keep stock of identifier letter " + identifierLetter);
+        return ring;
+    }
+
+    private void refillLoop() {
+        while (!this.closed) {
+            for (char letter : this.letters) {
+                Ring ring = this.rings[letter - 'A'];
+                while (!this.closed && ring.size() < ring.capacity()) {
+                    if (!ring.offer(this.source.next(letter)))
+                        break;
+                    this.refilled.incrementAndGet();
+                }
+            }
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+    }
+
+    /**
+     * A bounded multi-producer, multi-consumer ring buffer of {@code long} values.
+     * Each slot carries a sequence number that tells producers and consumers whose turn it is,
+     * so neither side ever takes a lock.
+     */
+    private static final class Ring {
+
+        /**
+         * Returned by {@link #poll()} when the ring is empty. Packed references are never negative.
+         */
+        static final long EMPTY = -1L;
+
+        private final long[] values;
+        private final AtomicLongArray sequences;
+        private final int mask;
+        private final AtomicLong head = new AtomicLong();
+        private final AtomicLong tail = new AtomicLong();
+
+        Ring(int capacity) {
+            this.values = new long[capacity];
+            this.sequences = new AtomicLongArray(capacity);
+            this.mask = capacity - 1;
+            for (int i = 0; i < capacity; i++)
+                this.sequences.set(i, i);
+        }
+
+        int capacity() {
+            return this.values.length;
+        }
+
+        int size() {
+            long size = this.tail.get() - this.head.get();
+            return (int) Math.max(0, Math.min(size, this.values.length));
+        }
+
+        boolean offer(long value) {
+            while (true) {
+                long position = this.tail.get();
+                int slot = (int) position & this.mask;
+                long difference = this.sequences.get(slot) - position;
+                if (difference == 0) {
+                    if (this.tail.compareAndSet(position, position + 1)) {
+                        this.values[slot] = value;
+                        this.sequences.set(slot, position + 1);
+                        return true;
+                    }
+                } else if (difference < 0) {
+                    return false;
+                }
+            }
+        }
+
+        long poll() {
+            while (true) {
+                long position = this.head.get();
+                int slot = (int) position & this.mask;
+                long difference = this.sequences.get(slot) - (position + 1);
+                if (difference == 0) {
+                    if (this.head.compareAndSet(position, position + 1)) {
+                        long value = this.values[slot];
+                        this.sequences.set(slot, position + this.values.length);
+                        return value;
+                    }
+                } else if (difference < 0) {
+                    return EMPTY;
+                }
+            }
+        }
+    }
+}
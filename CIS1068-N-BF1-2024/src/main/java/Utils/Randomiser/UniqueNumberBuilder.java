@@ -42,6 +42,15 @@ public class UniqueNumberBuilder {
         stringBuilder.append(obj);
     }
 
+    /**
+     * Appends a single character to this builder without boxing.
+     *
+     * @param digit the character to append, normally a decimal digit
+     */
+    public void append(char digit) {
+        stringBuilder.append(digit);
+    }
+
     /**
      * Converts the constructed number sequence to an {@code int}.
      *
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2024
+ * Author: Mateusz Podeszwa
+ * All rights reserved.
+ */
+
+package Utils.Randomiser;
+
+import java.security.SecureRandom;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The {@code UniqueReferenceAllocator} class issues reference numbers that are guaranteed never to repeat
+ * for the same identifier letter and quarter label, while still looking random.
+ *
+ * <p>The format of the generated reference number is the same as {@link GenerateReferenceNumber}:
+ * <pre>
+ * [Identifier Letter][Seed Number][Quarter Label]
+ * </pre>
+ *
+ * <p>Each combination of identifier letter and quarter label owns a monotonic counter. The seed number is that
+ * counter passed through a keyed {@link FeistelPermutation}, which is a bijection, so distinct counter values always
+ * produce distinct seeds. Memory use is therefore constant (one {@code long} per letter and quarter) no matter how
+ * many references have been issued, and allocation is a single lock-free {@code getAndIncrement}.
+ *
+ * <p>Uniqueness holds for the lifetime of one allocator. References issued by two allocators with different keys,
+ * or by the same key after a restart, may collide; see {@link #UniqueReferenceAllocator(int, long, long)} for resuming
+ * a previous run.
+ *
+ * <p>
+ * <b>Example usage:</b>
+ * <pre>
+ * UniqueReferenceAllocator allocator = new UniqueReferenceAllocator(18);
+ * String accountNumber = allocator.next('U');   // e.g. "U503118874002193676D"
+ * </pre>
+ *
+ * @version 1.0
+ * @since 2024
+ */
+public final class UniqueReferenceAllocator {
+
+    private static final int LETTERS = 26;
+    private static final int QUARTERS = 4;
+
+    private final int seedLength;
+    private final FeistelPermutation permutation;
+    private final AtomicLongArray counters;
+
+    /**
+     * Constructs an allocator with a randomly chosen key.
+     *
+     * @param seedLength the number of digits in the seed; must be between 2 and 18.
+     * @throws IllegalArgumentException if {@code seedLength} is out of range.
+     */
+    public UniqueReferenceAllocator(int seedLength) {
+        this(seedLength, new SecureRandom().nextLong());
+    }
+
+    /**
+     * Constructs an allocator with the given key. Two allocators with the same key issue the same sequence.
+     *
+     * @param seedLength the number of digits in the seed; must be between 2 and 18.
+     * @param key the key of the permutation.
+     * @throws IllegalArgumentException if {@code seedLength} is out of range.
+     */
+    public UniqueReferenceAllocator(int seedLength, long key) {
+        this(seedLength, key, 0L);
+    }
+
+    /**
+     * Constructs an allocator with the given key, starting every counter at {@code firstCounter}.
+     * Persisting the largest value of {@link #issued(char, char)} and passing it back here after a restart
+     * continues the same never-repeating sequence.
+     *
+     * @param seedLength the number of digits in the seed; must be between 2 and 18.
+     * @param key the key of the permutation.
+     * @param firstCounter the first counter value to issue.
+     * @throws IllegalArgumentException if {@code seedLength} or {@code firstCounter} is out of range.
+     */
+    public UniqueReferenceAllocator(int seedLength, long key, long firstCounter) {
+        if (seedLength <= 1 || seedLength > 18)
+            throw new IllegalArgumentException("Reference length must be between 2 and 18: " + seedLength);
+
+        long domainSize = 1L;
+        for (int i = 0; i < seedLength; i++)
+            domainSize *= 10L;
+        if (firstCounter < 0 || firstCounter >= domainSize)
+            throw new IllegalArgumentException("First counter must be between 0 and " + (domainSize - 1) + ": " + firstCounter);
+
+        this.seedLength = seedLength;
+        this.permutation = new FeistelPermutation(domainSize, key);
+        this.counters = new AtomicLongArray(LETTERS * QUARTERS);
+        for (int i = 0; i < this.counters.length(); i++)
+            this.counters.set(i, firstCounter);
+    }
+
+    /**
+     * Returns the number of digits in the seed part of each reference.
+     *
+     * @return the seed length.
+     */
+    public int getSeedLength() {
+        return this.seedLength;
+    }
+
+    /**
+     * Returns how many distinct references exist for each identifier letter and quarter label.
+     *
+     * @return {@code 10^seedLength}.
+     */
+    public long capacity() {
+        return this.permutation.domainSize();
+    }
+
+    /**
+     * Returns how many references have been issued so far for an identifier letter and quarter label.
+     *
+     * @param identifierLetter the identifier letter.
+     * @param quarterLabel the quarter label ('A' to 'D').
+     * @return the number of references issued, including {@code firstCounter}.
+     */
+    public long issued(char identifierLetter, char quarterLabel) {
+        return Math.min(this.counters.get(slot(identifierLetter, quarterLabel)), capacity());
+    }
+
+    /**
+     * Allocates the next seed number for an identifier letter and quarter label.
+     *
+     * @param identifierLetter the identifier letter ('A' to 'Z', case-insensitive).
+     * @param quarterLabel the quarter label ('A' to 'D').
+     * @return a seed in {@code [0, capacity())} that has not been returned before for this letter and quarter.
+     * @throws IllegalArgumentException if the letter or quarter label is invalid.
+     * @throws IllegalStateException if every seed for this letter and quarter has been issued.
+     */
+    public long nextSeed(char identifierLetter, char quarterLabel) {
+        int slot = slot(identifierLetter, quarterLabel);
+        long counter = this.counters.getAndIncrement(slot);
+        if (counter >= capacity()) {
+            this.counters.set(slot, capacity());
+            throw new IllegalStateException("All " + capacity() + " references for identifier "
+                    + Character.toUpperCase(identifierLetter) + " and quarter " + quarterLabel + " have been issued");
+        }
+        return this.permutation.apply(counter, slot);
+    }
+
+    /**
+     * Writes the next reference for an identifier letter and quarter label into {@code destination}.
+     *
+     * @param identifierLetter the identifier letter ('A' to 'Z', case-insensitive).
+     * @param quarterLabel the quarter label ('A' to 'D').
+     * @param destination the buffer to write into.
+     * @param offset the index of the first character to write.
+     * @return the index just past the last character written.
+     * @throws IndexOutOfBoundsException if the buffer is too small.
+     */
+    public int write(char identifierLetter, char quarterLabel, char[] destination, int offset) {
+        if (offset < 0 || destination.length - offset < this.seedLength + 2)
+            throw new IndexOutOfBoundsException("Buffer of length " + destination.length
+                    + " cannot hold a reference of length " + (this.seedLength + 2) + " at offset " + offset);
+
+        long seed = nextSeed(identifierLetter, quarterLabel);
+        destination[offset] = Character.toUpperCase(identifierLetter);
+        for (int i = this.seedLength; i >= 1; i--) {
+            destination[offset + i] = (char) ('0' + (int) (seed % 10));
+            seed /= 10;
+        }
+        destination[offset + this.seedLength + 1] = quarterLabel;
+        return offset + this.seedLength + 2;
+    }
+
+    /**
+     * Generates the next reference number for an identifier letter in the quarter of the given month.
+     *
+     * @param identifierLetter the identifier letter ('A' to 'Z', case-insensitive).
+     * @param month the month whose quarter label is used.
+     * @return the generated reference number.
+     */
+    public String next(char identifierLetter, Month month) {
+        char[] reference = new char[this.seedLength + 2];
+        write(identifierLetter, GenerateReferenceNumber.getQuarterLabel(month.firstMonthOfQuarter()), reference, 0);
+        return new String(reference);
+    }
+
+    /**
+     * Generates the next reference number for an identifier letter in the current quarter.
+     *
+     * @param identifierLetter the identifier letter ('A' to 'Z', case-insensitive).
+     * @return the generated reference number.
+     */
+    public String next(char identifierLetter) {
+        return next(identifierLetter, LocalDate.now().getMonth());
+    }
+
+    private static int slot(char identifierLetter, char quarterLabel) {
+        int letter = Character.toUpperCase(identifierLetter) - 'A';
+        int quarter = quarterLabel - 'A';
+        if (letter < 0 || letter >= LETTERS)
+            throw new IllegalArgumentException("Identifier letter must be between A and Z: " + identifierLetter);
+        if (quarter < 0 || quarter >= QUARTERS)
+            throw new IllegalArgumentException("Quarter label must be between A and D: " + quarterLabel);
+        return letter * QUARTERS + quarter;
+    }
+}